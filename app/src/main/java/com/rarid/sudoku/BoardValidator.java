@@ -0,0 +1,59 @@
+package com.rarid.sudoku;
+
+// Board checks that do not depend on the view, so they can run off the UI
+// thread and outside Android
+public class BoardValidator {
+    // Marks every user-entered digit that repeats in its row, column or box.
+    // Clues are never marked. Works for any square board size, the boxes
+    // being sqrt(size) cells wide.
+    public static void findErrors(int[][] sudokuGrid, boolean[][] isClue, boolean[][] isError) {
+        int size = sudokuGrid.length;
+        int box = boxSize(size);
+        // Reset errors
+        for (int r = 0; r < size; r++)
+            for (int c = 0; c < size; c++)
+                isError[r][c] = false;
+
+        // Check for duplicates
+        for (int r = 0; r < size; r++) {
+            for (int c = 0; c < size; c++) {
+                int val = sudokuGrid[r][c];
+                if (val == 0)
+                    continue;
+                // Only check user input
+                if (isClue[r][c])
+                    continue;
+                // Row
+                for (int cc = 0; cc < size; cc++) {
+                    if (cc != c && sudokuGrid[r][cc] == val) {
+                        isError[r][c] = true;
+                        break;
+                    }
+                }
+                // Col
+                for (int rr = 0; rr < size; rr++) {
+                    if (rr != r && sudokuGrid[rr][c] == val) {
+                        isError[r][c] = true;
+                        break;
+                    }
+                }
+                // Box
+                int boxRow = (r / box) * box, boxCol = (c / box) * box;
+                for (int dr = 0; dr < box; dr++) {
+                    for (int dc = 0; dc < box; dc++) {
+                        int rr = boxRow + dr, cc = boxCol + dc;
+                        if ((rr != r || cc != c) && sudokuGrid[rr][cc] == val) {
+                            isError[r][c] = true;
+                            break;
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    // Side of a box on a board with the given number of rows, 3 for 9x9
+    public static int boxSize(int size) {
+        return (int) Math.round(Math.sqrt(size));
+    }
+}
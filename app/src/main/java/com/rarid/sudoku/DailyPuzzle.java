@@ -0,0 +1,38 @@
+package com.rarid.sudoku;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import java.util.Calendar;
+
+// The daily challenge is played like any other difficulty under the key
+// "daily", but its puzzle is generated from today's date instead of taken
+// from the pool, so every player gets the same one and nothing is stored in
+// the APK. The date of the puzzle being played is kept so a game left over
+// from yesterday is replaced.
+public class DailyPuzzle {
+    public static final String DIFFICULTY = "daily";
+    private static final String PREFS_NAME = "sudoku_daily";
+
+    public static boolean isDaily(String difficulty) {
+        return DIFFICULTY.equals(difficulty);
+    }
+
+    // Today's date as yyyymmdd in the device's time zone
+    public static int today() {
+        Calendar calendar = Calendar.getInstance();
+        return calendar.get(Calendar.YEAR) * 10000 + (calendar.get(Calendar.MONTH) + 1) * 100
+                + calendar.get(Calendar.DAY_OF_MONTH);
+    }
+
+    // True when the saved daily game is today's puzzle
+    public static boolean isFromToday(Context context) {
+        SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        return prefs.getInt("date", 0) == today();
+    }
+
+    public static void setStarted(Context context, int date) {
+        SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        prefs.edit().putInt("date", date).apply();
+    }
+}
@@ -3,8 +3,11 @@ package com.rarid.sudoku;
 import android.content.SharedPreferences;
 import android.app.Activity;
 import android.content.Intent;
+import android.content.pm.ApplicationInfo;
+import android.content.res.AssetFileDescriptor;
 import androidx.annotation.Nullable;
 import android.os.Bundle;
+import android.util.Log;
 import android.view.View;
 import android.graphics.drawable.GradientDrawable;
 import androidx.appcompat.app.AppCompatActivity;
@@ -19,12 +22,20 @@ import android.widget.TextView;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicReference;
 
+import com.rarid.sudoku.generator.AsyncGenerator;
+import com.rarid.sudoku.generator.GeneratorMetrics;
+import com.rarid.sudoku.generator.PuzzlePack;
+import com.rarid.sudoku.generator.Solvers;
 import com.rarid.sudoku.generator.SudokuGenerator;
 
 public class GameActivity extends AppCompatActivity {
+    private static final String TAG = "GameActivity";
     private static final int SETTINGS_REQUEST = 1001;
+    // Longest a new puzzle may take before the best one found so far is used
+    private static final long GENERATION_BUDGET_MS = 3000;
 
     private SudokuBoardView boardView;
     private String currentDifficulty;
@@ -40,8 +51,9 @@ public class GameActivity extends AppCompatActivity {
     private android.os.Handler timerHandler;
     private Runnable timerRunnable;
     private long totalElapsedTime = 0;
+    private Future<SudokuGenerator.PuzzleWithSolution> pendingGeneration;
 
-    private final boolean[] numberLocked = new boolean[10]; // 1-9, ignore index 0
+    private boolean[] numberLocked = new boolean[10]; // 1 to board size, ignore index 0
 
     private int dpToPx(int dp) {
         return (int) (dp * getResources().getDisplayMetrics().density);
@@ -98,6 +110,8 @@ public class GameActivity extends AppCompatActivity {
         };
         timerHandler.post(timerRunnable);
 
+        applySolverSetting();
+
         // --- Game Logic Loading (unchanged, same as yours) ---
         AtomicReference<Intent> intent = new AtomicReference<>(getIntent());
         if (intent.get() != null) {
@@ -105,23 +119,22 @@ public class GameActivity extends AppCompatActivity {
             boolean newGame = intent.get().getBooleanExtra("newGame", false);
 
             if (newGame) {
-                SudokuGenerator.PuzzleWithSolution pws = SudokuGenerator
-                        .generatePuzzleAndSolutionForDifficulty(currentDifficulty);
-                SudokuGenerator.saveGeneratedPuzzle(this, currentDifficulty, pws.puzzle, pws.solution);
                 this.deleteFile(currentDifficulty + "_progress.json");
                 this.deleteFile(currentDifficulty + "_completed.json"); // <-- Add this line
-                boardView.setGrid(pws.puzzle);
                 boardView.clearMoveHistory(); // Clear undo history for new game
                 hintsLeft = 3;
                 hintsUsed = 0;
-                solutionGrid = pws.solution;
+                startNewPuzzle();
             } else {
                 loadProgress();
                 boardView.clearMoveHistory(); // Clear undo history when loading existing game
             }
         }
 
-        ensurePuzzleCopyExists(currentDifficulty);
+        // The daily puzzle has no asset to fall back on, it is generated from
+        // the date every time
+        if (!DailyPuzzle.isDaily(currentDifficulty))
+            ensurePuzzleCopyExists(currentDifficulty);
 
         // --- Set toolbar title to show current difficulty ---
         String difficultyLabel = "Sudoku";
@@ -207,6 +220,7 @@ public class GameActivity extends AppCompatActivity {
     protected void onActivityResult(int requestCode, int resultCode, @Nullable Intent data) {
         super.onActivityResult(requestCode, resultCode, data);
         if (requestCode == SETTINGS_REQUEST) {
+            applySolverSetting();
             SharedPreferences prefs = getSharedPreferences("sudoku_settings", MODE_PRIVATE);
             boolean hintsEnabled = prefs.getBoolean("hints_enabled", false);
             boolean notesEnabled = prefs.getBoolean("pencilmark_enabled", true);
@@ -250,10 +264,11 @@ public class GameActivity extends AppCompatActivity {
             JSONObject puzzleObj = new JSONObject(json);
             JSONArray puzzleArr = puzzleObj.getJSONArray("puzzle");
 
-            int[][] puzzle = new int[9][9];
-            for (int i = 0; i < 9; i++) {
+            int size = puzzleArr.length();
+            int[][] puzzle = new int[size][size];
+            for (int i = 0; i < size; i++) {
                 JSONArray row = puzzleArr.getJSONArray(i);
-                for (int j = 0; j < 9; j++) {
+                for (int j = 0; j < size; j++) {
                     puzzle[i][j] = row.getInt(j);
                 }
             }
@@ -271,6 +286,9 @@ public class GameActivity extends AppCompatActivity {
             String filename = difficulty + "_user.json";
             java.io.File file = new java.io.File(getFilesDir(), filename);
             if (!file.exists()) {
+                // Prefer the binary pack, only the picked puzzle gets decoded
+                if (copyPuzzleFromPack(difficulty))
+                    return;
                 InputStream is = getAssets().open(difficulty + ".json");
                 java.io.FileOutputStream fos = openFileOutput(filename, MODE_PRIVATE);
                 byte[] buffer = new byte[4096];
@@ -286,8 +304,117 @@ public class GameActivity extends AppCompatActivity {
         }
     }
 
+    // Maps the difficulty's pack asset and saves one random puzzle from it as
+    // the user copy. The asset has to be stored uncompressed for openFd to
+    // work, otherwise this returns false and the JSON asset is used instead.
+    private boolean copyPuzzleFromPack(String difficulty) {
+        try (AssetFileDescriptor afd = getAssets().openFd(difficulty + ".pack");
+                java.io.FileInputStream fis = afd.createInputStream()) {
+            PuzzlePack pack = PuzzlePack.open(fis.getChannel(), afd.getStartOffset(), afd.getLength());
+            if (pack.size() == 0)
+                return false;
+            int index = new java.util.Random().nextInt(pack.size());
+            SudokuGenerator.saveGeneratedPuzzle(this, difficulty, pack.getPuzzle(index), pack.getSolution(index));
+            return true;
+        } catch (java.io.IOException e) {
+            return false;
+        }
+    }
+
+    // Takes a pre-generated puzzle, only generates when the pool is empty. The
+    // daily puzzle never comes from the pool.
+    private void startNewPuzzle() {
+        SudokuGenerator.PuzzleWithSolution pws = DailyPuzzle.isDaily(currentDifficulty) ? null
+                : PuzzlePool.take(this, currentDifficulty);
+        if (pws != null)
+            showNewPuzzle(pws);
+        else
+            generateInBackground();
+    }
+
+    // Generates a puzzle off the main thread. The board stays empty until it
+    // arrives, and the generation is cancelled if the user leaves first. When
+    // the generator fails the game falls back to a stored puzzle.
+    private void generateInBackground() {
+        AsyncGenerator.Callback callback = new AsyncGenerator.Callback() {
+            @Override
+            public void onGenerated(SudokuGenerator.PuzzleWithSolution pws) {
+                runOnUiThread(() -> {
+                    if (!generationWanted())
+                        return;
+                    pendingGeneration = null;
+                    logGeneratorMetrics();
+                    showNewPuzzle(pws);
+                    startTime = System.currentTimeMillis();
+                    totalElapsedTime = 0;
+                });
+            }
+
+            @Override
+            public void onFailed(Throwable error) {
+                Log.e(TAG, "Generating a " + currentDifficulty + " puzzle failed", error);
+                runOnUiThread(() -> {
+                    if (!generationWanted())
+                        return;
+                    pendingGeneration = null;
+                    showStoredPuzzle();
+                    startTime = System.currentTimeMillis();
+                    totalElapsedTime = 0;
+                });
+            }
+        };
+        if (DailyPuzzle.isDaily(currentDifficulty)) {
+            int date = DailyPuzzle.today();
+            DailyPuzzle.setStarted(this, date);
+            pendingGeneration = AsyncGenerator.generateDaily(date / 10000, date / 100 % 100, date % 100, callback);
+        } else {
+            pendingGeneration = AsyncGenerator.generate(currentDifficulty, GENERATION_BUDGET_MS, callback);
+        }
+    }
+
+    // A cancel can race with the callback, only the UI thread knows for sure
+    // that the generation is still wanted
+    private boolean generationWanted() {
+        return !isDestroyed() && pendingGeneration != null && !pendingGeneration.isCancelled();
+    }
+
+    // Falls back on a pooled puzzle, or the bundled one as on a first start.
+    // The daily puzzle has no stored copy, the player is sent back instead.
+    private void showStoredPuzzle() {
+        if (DailyPuzzle.isDaily(currentDifficulty)) {
+            Toast.makeText(this, "Could not create today's puzzle", Toast.LENGTH_LONG).show();
+            finish();
+            return;
+        }
+        SudokuGenerator.PuzzleWithSolution pws = PuzzlePool.take(this, currentDifficulty);
+        if (pws != null) {
+            showNewPuzzle(pws);
+            return;
+        }
+        deleteFile(currentDifficulty + "_user.json");
+        ensurePuzzleCopyExists(currentDifficulty);
+        int[][] puzzle = loadPuzzleFromUserCopy(currentDifficulty);
+        boardView.setGrid(puzzle);
+        solutionGrid = recoverSolution(loadSolutionFromAssets(currentDifficulty), puzzle);
+    }
+
+    // Debug builds log the search effort of every generated puzzle, so slow
+    // generations can be traced to the puzzles that caused them
+    private void logGeneratorMetrics() {
+        GeneratorMetrics metrics = AsyncGenerator.lastMetrics();
+        if (metrics != null && (getApplicationInfo().flags & ApplicationInfo.FLAG_DEBUGGABLE) != 0)
+            Log.d(TAG, "Generated a " + currentDifficulty + " puzzle:\n" + metrics);
+    }
+
+    private void showNewPuzzle(SudokuGenerator.PuzzleWithSolution pws) {
+        SudokuGenerator.saveGeneratedPuzzle(this, currentDifficulty, pws.puzzle, pws.solution);
+        boardView.setGrid(pws.puzzle);
+        solutionGrid = pws.solution;
+    }
+
     private void saveProgress() {
-        if (puzzleCompleted)
+        // Nothing to save while the puzzle is still being generated
+        if (puzzleCompleted || pendingGeneration != null)
             return;
 
         long currentTime = System.currentTimeMillis();
@@ -321,7 +448,7 @@ public class GameActivity extends AppCompatActivity {
             }
             hintsLeft = data.hintsLeft;
             hintsUsed = data.hintsUsed;
-            solutionGrid = data.solutionGrid;
+            solutionGrid = recoverSolution(data.solutionGrid, cluesOnly(data.grid, data.isClue));
             startTime = System.currentTimeMillis(); // Reset startTime to current time
             pausedTime = 0; // Reset pausedTime
             totalElapsedTime = data.totalElapsedTime; // Keep the total elapsed time
@@ -330,15 +457,11 @@ public class GameActivity extends AppCompatActivity {
             // Only load a new puzzle if there's no saved progress
             int[][] puzzle = loadPuzzleFromUserCopy(currentDifficulty);
             if (puzzle == null || puzzle[0][0] == 0) {
-                // If no puzzle exists, generate a new one
-                SudokuGenerator.PuzzleWithSolution pws = SudokuGenerator
-                        .generatePuzzleAndSolutionForDifficulty(currentDifficulty);
-                SudokuGenerator.saveGeneratedPuzzle(this, currentDifficulty, pws.puzzle, pws.solution);
-                boardView.setGrid(pws.puzzle);
-                solutionGrid = pws.solution;
+                // If no puzzle exists, take or generate a new one
+                startNewPuzzle();
             } else {
                 boardView.setGrid(puzzle);
-                solutionGrid = loadSolutionFromAssets(currentDifficulty);
+                solutionGrid = recoverSolution(loadSolutionFromAssets(currentDifficulty), puzzle);
             }
             hintsLeft = 3;
             hintsUsed = 0;
@@ -370,6 +493,15 @@ public class GameActivity extends AppCompatActivity {
         saveProgress();
     }
 
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        if (pendingGeneration != null) {
+            pendingGeneration.cancel(true);
+            pendingGeneration = null;
+        }
+    }
+
     @Override
     protected void onResume() {
         super.onResume();
@@ -391,10 +523,11 @@ public class GameActivity extends AppCompatActivity {
             JSONObject puzzleObj = new JSONObject(json);
             JSONArray solutionArr = puzzleObj.getJSONArray("solution");
 
-            int[][] solution = new int[9][9];
-            for (int i = 0; i < 9; i++) {
+            int size = solutionArr.length();
+            int[][] solution = new int[size][size];
+            for (int i = 0; i < size; i++) {
                 JSONArray row = solutionArr.getJSONArray(i);
-                for (int j = 0; j < 9; j++) {
+                for (int j = 0; j < size; j++) {
                     solution[i][j] = row.getInt(j);
                 }
             }
@@ -405,6 +538,35 @@ public class GameActivity extends AppCompatActivity {
         }
     }
 
+    // The engine that solves puzzles in the app can be switched with the
+    // "solver_engine" setting, see Solvers. Unknown names keep the default.
+    private void applySolverSetting() {
+        SharedPreferences prefs = getSharedPreferences("sudoku_settings", MODE_PRIVATE);
+        try {
+            SudokuGenerator.setSolver(prefs.getString("solver_engine", Solvers.DEFAULT));
+        } catch (IllegalArgumentException e) {
+            SudokuGenerator.setSolver(Solvers.DEFAULT);
+        }
+    }
+
+    // Saves from older versions and damaged user copies can lack the
+    // solution, it is then solved again from the clues so hints and the
+    // completion check keep working
+    private int[][] recoverSolution(int[][] solution, int[][] puzzle) {
+        if (solution != null && solution.length == puzzle.length && solution[0][0] != 0)
+            return solution;
+        return SudokuGenerator.solvePuzzle(puzzle);
+    }
+
+    private static int[][] cluesOnly(int[][] grid, boolean[][] isClue) {
+        int[][] puzzle = new int[grid.length][grid.length];
+        for (int r = 0; r < grid.length; r++)
+            for (int c = 0; c < grid.length; c++)
+                if (isClue[r][c])
+                    puzzle[r][c] = grid[r][c];
+        return puzzle;
+    }
+
     private void giveHint() {
         if (hintsLeft <= 0) {
             Toast.makeText(this, "No hints left!", Toast.LENGTH_SHORT).show();
@@ -438,13 +600,16 @@ public class GameActivity extends AppCompatActivity {
 
     private void checkAndLockCompletedNumbers() {
         int[][] userGrid = boardView.getGrid();
-        for (int num = 1; num <= 9; num++) {
+        int size = userGrid.length;
+        if (numberLocked.length != size + 1)
+            numberLocked = new boolean[size + 1];
+        for (int num = 1; num <= size; num++) {
             if (numberLocked[num])
                 continue;
             int count = 0;
             boolean allCorrect = true;
-            for (int r = 0; r < 9; r++) {
-                for (int c = 0; c < 9; c++) {
+            for (int r = 0; r < size; r++) {
+                for (int c = 0; c < size; c++) {
                     if (userGrid[r][c] == num) {
                         count++;
                         if (solutionGrid[r][c] != num) {
@@ -453,11 +618,11 @@ public class GameActivity extends AppCompatActivity {
                     }
                 }
             }
-            if (count == 9 && allCorrect) {
+            if (count == size && allCorrect) {
                 numberLocked[num] = true;
                 // Lock cells in boardView
-                for (int r = 0; r < 9; r++) {
-                    for (int c = 0; c < 9; c++) {
+                for (int r = 0; r < size; r++) {
+                    for (int c = 0; c < size; c++) {
                         if (userGrid[r][c] == num) {
                             boardView.setCellAsClue(r, c);
                         }
@@ -476,17 +641,21 @@ public class GameActivity extends AppCompatActivity {
     }
 
     private boolean isPuzzleComplete() {
+        if (pendingGeneration != null)
+            return false;
         int[][] userGrid = boardView.getGrid();
-        for (int r = 0; r < 9; r++) {
-            for (int c = 0; c < 9; c++) {
+        if (userGrid.length != solutionGrid.length)
+            return false;
+        for (int r = 0; r < userGrid.length; r++) {
+            for (int c = 0; c < userGrid.length; c++) {
                 if (userGrid[r][c] != solutionGrid[r][c]) {
                     return false;
                 }
             }
         }
         boolean[][] errors = boardView.getIsError();
-        for (int r = 0; r < 9; r++)
-            for (int c = 0; c < 9; c++)
+        for (int r = 0; r < errors.length; r++)
+            for (int c = 0; c < errors.length; c++)
                 if (errors[r][c])
                     return false;
         return true;
@@ -27,13 +27,20 @@ public class MainActivity extends AppCompatActivity {
         Button easyButton = findViewById(R.id.easy_button);
         Button mediumButton = findViewById(R.id.medium_button);
         Button hardButton = findViewById(R.id.hard_button);
+        Button dailyButton = findViewById(R.id.daily_button);
         Button leaderboardButton = findViewById(R.id.leaderboard_button);
 
         title.setText("Sudoku");
 
+        // Fill the puzzle pools in the background so new games start instantly
+        PuzzlePool.refill(this, "easy");
+        PuzzlePool.refill(this, "medium");
+        PuzzlePool.refill(this, "hard");
+
         easyButton.setOnClickListener(v -> launchGame("easy"));
         mediumButton.setOnClickListener(v -> launchGame("medium"));
         hardButton.setOnClickListener(v -> launchGame("hard"));
+        dailyButton.setOnClickListener(v -> launchGame(DailyPuzzle.DIFFICULTY));
         leaderboardButton.setOnClickListener(v -> {
             Intent intent = new Intent(MainActivity.this, TimerActivity.class);
             intent.putExtra("difficulty", "easy"); // Default to easy difficulty
@@ -44,6 +51,9 @@ public class MainActivity extends AppCompatActivity {
     private void launchGame(String difficulty) {
         boolean hasProgress = hasSavedProgress(difficulty);
         boolean completed = isPuzzleCompleted(difficulty);
+        // Yesterday's daily game is replaced by today's puzzle
+        if (DailyPuzzle.isDaily(difficulty) && !DailyPuzzle.isFromToday(this))
+            hasProgress = false;
 
         Intent intent = new Intent(MainActivity.this, GameActivity.class);
         intent.putExtra("difficulty", difficulty);
@@ -0,0 +1,174 @@
+package com.rarid.sudoku;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.HashSet;
+import java.util.Set;
+
+// JSON form of a saved game, kept apart from the file and Context handling in
+// ProgressManager. Boards of any size are stored as nested arrays, so the
+// size of a saved game is the length of its grid.
+class ProgressCodec {
+    static String encode(int[][] grid,
+            boolean[][] isClue,
+            Set<Integer>[][] pencilmarks,
+            boolean[][] isError,
+            int hintsLeft,
+            int hintsUsed,
+            int[][] solutionGrid,
+            long totalElapsedTime,
+            long startTime,
+            long pausedTime) throws JSONException {
+        JSONObject obj = new JSONObject();
+
+        // Save grid
+        JSONArray gridArr = new JSONArray();
+        for (int[] row : grid) {
+            JSONArray rowArr = new JSONArray();
+            for (int val : row)
+                rowArr.put(val);
+            gridArr.put(rowArr);
+        }
+        obj.put("sudokuGrid", gridArr);
+
+        // Save clues
+        JSONArray clueArr = new JSONArray();
+        for (boolean[] row : isClue) {
+            JSONArray rowArr = new JSONArray();
+            for (boolean val : row)
+                rowArr.put(val);
+            clueArr.put(rowArr);
+        }
+        obj.put("isClue", clueArr);
+
+        // Save notes
+        JSONArray pencilmarksArr = new JSONArray();
+        for (int r = 0; r < grid.length; r++) {
+            JSONArray rowArr = new JSONArray();
+            for (int c = 0; c < grid.length; c++) {
+                JSONArray cellArr = new JSONArray();
+                for (int n : pencilmarks[r][c]) {
+                    cellArr.put(n);
+                }
+                rowArr.put(cellArr);
+            }
+            pencilmarksArr.put(rowArr);
+        }
+        obj.put("pencilmarks", pencilmarksArr);
+
+        // Save isError
+        JSONArray errorArr = new JSONArray();
+        for (boolean[] row : isError) {
+            JSONArray rowArr = new JSONArray();
+            for (boolean val : row)
+                rowArr.put(val);
+            errorArr.put(rowArr);
+        }
+        obj.put("isError", errorArr);
+
+        // Save hintsLeft and hintsUsed
+        obj.put("hintsLeft", hintsLeft);
+        obj.put("hintsUsed", hintsUsed);
+
+        // Save solutionGrid
+        JSONArray solutionArr = new JSONArray();
+        for (int[] row : solutionGrid) {
+            JSONArray rowArr = new JSONArray();
+            for (int val : row)
+                rowArr.put(val);
+            solutionArr.put(rowArr);
+        }
+        obj.put("solutionGrid", solutionArr);
+
+        // Save total elapsed time
+        obj.put("totalElapsedTime", totalElapsedTime);
+
+        // Save start time and paused time
+        obj.put("startTime", startTime);
+        obj.put("pausedTime", pausedTime);
+
+        return obj.toString();
+    }
+
+    static ProgressManager.ProgressData decode(String json) throws JSONException {
+        JSONObject obj = new JSONObject(json);
+        JSONArray gridArr = obj.getJSONArray("sudokuGrid");
+        int size = gridArr.length();
+        int[][] grid = new int[size][size];
+        boolean[][] isClue = new boolean[size][size];
+        boolean[][] isError = new boolean[size][size];
+        Set<Integer>[][] pencilmarks = new HashSet[size][size];
+        for (int r = 0; r < size; r++)
+            for (int c = 0; c < size; c++)
+                pencilmarks[r][c] = new HashSet<>();
+
+        // Load grid
+        for (int r = 0; r < size; r++) {
+            JSONArray rowArr = gridArr.getJSONArray(r);
+            for (int c = 0; c < size; c++) {
+                grid[r][c] = rowArr.getInt(c);
+            }
+        }
+
+        // Load clues
+        JSONArray clueArr = obj.getJSONArray("isClue");
+        for (int r = 0; r < size; r++) {
+            JSONArray rowArr = clueArr.getJSONArray(r);
+            for (int c = 0; c < size; c++) {
+                isClue[r][c] = rowArr.getBoolean(c);
+            }
+        }
+
+        // Load notes
+        if (obj.has("pencilmarks")) {
+            JSONArray pencilmarksArr = obj.getJSONArray("pencilmarks");
+            for (int r = 0; r < size; r++) {
+                JSONArray rowArr = pencilmarksArr.getJSONArray(r);
+                for (int c = 0; c < size; c++) {
+                    JSONArray cellArr = rowArr.getJSONArray(c);
+                    for (int i = 0; i < cellArr.length(); i++) {
+                        pencilmarks[r][c].add(cellArr.getInt(i));
+                    }
+                }
+            }
+        }
+
+        // Load isError
+        if (obj.has("isError")) {
+            JSONArray errorArr = obj.getJSONArray("isError");
+            for (int r = 0; r < size; r++) {
+                JSONArray rowArr = errorArr.getJSONArray(r);
+                for (int c = 0; c < size; c++) {
+                    isError[r][c] = rowArr.getBoolean(c);
+                }
+            }
+        }
+
+        // Load hintsLeft and hintsUsed
+        int hintsLeft = obj.has("hintsLeft") ? obj.getInt("hintsLeft") : 3;
+        int hintsUsed = obj.has("hintsUsed") ? obj.getInt("hintsUsed") : (3 - hintsLeft);
+
+        int[][] solutionGrid = new int[size][size];
+        if (obj.has("solutionGrid")) {
+            JSONArray solutionArr = obj.getJSONArray("solutionGrid");
+            for (int r = 0; r < size; r++) {
+                JSONArray rowArr = solutionArr.getJSONArray(r);
+                for (int c = 0; c < size; c++) {
+                    solutionGrid[r][c] = rowArr.getInt(c);
+                }
+            }
+        }
+
+        // Load total elapsed time
+        long totalElapsedTime = obj.has("totalElapsedTime") ? obj.getLong("totalElapsedTime") : 0;
+
+        // Load start time and paused time
+        long startTime = obj.has("startTime") ? obj.getLong("startTime") : System.currentTimeMillis();
+        long pausedTime = obj.has("pausedTime") ? obj.getLong("pausedTime") : 0;
+
+        return new ProgressManager.ProgressData(grid, isClue, pencilmarks, isError, hintsLeft, hintsUsed,
+                solutionGrid, totalElapsedTime, startTime, pausedTime);
+    }
+}
@@ -3,10 +3,8 @@ package com.rarid.sudoku;
 import android.content.Context;
 import android.content.SharedPreferences;
 
-import org.json.JSONArray;
 import org.json.JSONObject;
 
-import java.util.HashSet;
 import java.util.Set;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -27,77 +25,11 @@ public class ProgressManager {
             long startTime,
             long pausedTime) {
         try {
-            JSONObject obj = new JSONObject();
-
-            // Save grid
-            JSONArray gridArr = new JSONArray();
-            for (int[] row : grid) {
-                JSONArray rowArr = new JSONArray();
-                for (int val : row)
-                    rowArr.put(val);
-                gridArr.put(rowArr);
-            }
-            obj.put("sudokuGrid", gridArr);
-
-            // Save clues
-            JSONArray clueArr = new JSONArray();
-            for (boolean[] row : isClue) {
-                JSONArray rowArr = new JSONArray();
-                for (boolean val : row)
-                    rowArr.put(val);
-                clueArr.put(rowArr);
-            }
-            obj.put("isClue", clueArr);
-
-            // Save notes
-            JSONArray pencilmarksArr = new JSONArray();
-            for (int r = 0; r < 9; r++) {
-                JSONArray rowArr = new JSONArray();
-                for (int c = 0; c < 9; c++) {
-                    JSONArray cellArr = new JSONArray();
-                    for (int n : pencilmarks[r][c]) {
-                        cellArr.put(n);
-                    }
-                    rowArr.put(cellArr);
-                }
-                pencilmarksArr.put(rowArr);
-            }
-            obj.put("pencilmarks", pencilmarksArr);
-
-            // Save isError
-            JSONArray errorArr = new JSONArray();
-            for (boolean[] row : isError) {
-                JSONArray rowArr = new JSONArray();
-                for (boolean val : row)
-                    rowArr.put(val);
-                errorArr.put(rowArr);
-            }
-            obj.put("isError", errorArr);
-
-            // Save hintsLeft and hintsUsed
-            obj.put("hintsLeft", hintsLeft);
-            obj.put("hintsUsed", hintsUsed);
-
-            // Save solutionGrid
-            JSONArray solutionArr = new JSONArray();
-            for (int[] row : solutionGrid) {
-                JSONArray rowArr = new JSONArray();
-                for (int val : row)
-                    rowArr.put(val);
-                solutionArr.put(rowArr);
-            }
-            obj.put("solutionGrid", solutionArr);
-
-            // Save total elapsed time
-            obj.put("totalElapsedTime", totalElapsedTime);
-
-            // Save start time and paused time
-            obj.put("startTime", startTime);
-            obj.put("pausedTime", pausedTime);
-
+            String json = ProgressCodec.encode(grid, isClue, pencilmarks, isError, hintsLeft, hintsUsed,
+                    solutionGrid, totalElapsedTime, startTime, pausedTime);
             String filename = difficulty + "_progress.json";
             java.io.FileOutputStream fos = context.openFileOutput(filename, Context.MODE_PRIVATE);
-            fos.write(obj.toString().getBytes());
+            fos.write(json.getBytes());
             fos.close();
         } catch (Exception e) {
             e.printStackTrace();
@@ -114,82 +46,7 @@ public class ProgressManager {
                 sb.append((char) ch);
             fis.close();
 
-            JSONObject obj = new JSONObject(sb.toString());
-            int[][] grid = new int[9][9];
-            boolean[][] isClue = new boolean[9][9];
-            boolean[][] isError = new boolean[9][9];
-            Set<Integer>[][] pencilmarks = new HashSet[9][9];
-            for (int r = 0; r < 9; r++)
-                for (int c = 0; c < 9; c++)
-                    pencilmarks[r][c] = new HashSet<>();
-
-            // Load grid
-            JSONArray gridArr = obj.getJSONArray("sudokuGrid");
-            for (int r = 0; r < 9; r++) {
-                JSONArray rowArr = gridArr.getJSONArray(r);
-                for (int c = 0; c < 9; c++) {
-                    grid[r][c] = rowArr.getInt(c);
-                }
-            }
-
-            // Load clues
-            JSONArray clueArr = obj.getJSONArray("isClue");
-            for (int r = 0; r < 9; r++) {
-                JSONArray rowArr = clueArr.getJSONArray(r);
-                for (int c = 0; c < 9; c++) {
-                    isClue[r][c] = rowArr.getBoolean(c);
-                }
-            }
-
-            // Load notes
-            if (obj.has("pencilmarks")) {
-                JSONArray pencilmarksArr = obj.getJSONArray("pencilmarks");
-                for (int r = 0; r < 9; r++) {
-                    JSONArray rowArr = pencilmarksArr.getJSONArray(r);
-                    for (int c = 0; c < 9; c++) {
-                        JSONArray cellArr = rowArr.getJSONArray(c);
-                        for (int i = 0; i < cellArr.length(); i++) {
-                            pencilmarks[r][c].add(cellArr.getInt(i));
-                        }
-                    }
-                }
-            }
-
-            // Load isError
-            if (obj.has("isError")) {
-                JSONArray errorArr = obj.getJSONArray("isError");
-                for (int r = 0; r < 9; r++) {
-                    JSONArray rowArr = errorArr.getJSONArray(r);
-                    for (int c = 0; c < 9; c++) {
-                        isError[r][c] = rowArr.getBoolean(c);
-                    }
-                }
-            }
-
-            // Load hintsLeft and hintsUsed
-            int hintsLeft = obj.has("hintsLeft") ? obj.getInt("hintsLeft") : 3;
-            int hintsUsed = obj.has("hintsUsed") ? obj.getInt("hintsUsed") : (3 - hintsLeft);
-
-            int[][] solutionGrid = new int[9][9];
-            if (obj.has("solutionGrid")) {
-                JSONArray solutionArr = obj.getJSONArray("solutionGrid");
-                for (int r = 0; r < 9; r++) {
-                    JSONArray rowArr = solutionArr.getJSONArray(r);
-                    for (int c = 0; c < 9; c++) {
-                        solutionGrid[r][c] = rowArr.getInt(c);
-                    }
-                }
-            }
-
-            // Load total elapsed time
-            long totalElapsedTime = obj.has("totalElapsedTime") ? obj.getLong("totalElapsedTime") : 0;
-
-            // Load start time and paused time
-            long startTime = obj.has("startTime") ? obj.getLong("startTime") : System.currentTimeMillis();
-            long pausedTime = obj.has("pausedTime") ? obj.getLong("pausedTime") : 0;
-
-            return new ProgressData(grid, isClue, pencilmarks, isError, hintsLeft, hintsUsed, solutionGrid,
-                    totalElapsedTime, startTime, pausedTime);
+            return ProgressCodec.decode(sb.toString());
         } catch (Exception e) {
             return null; // No progress or error
         }
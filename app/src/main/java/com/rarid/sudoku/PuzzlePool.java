@@ -0,0 +1,98 @@
+package com.rarid.sudoku;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Process;
+
+import com.rarid.sudoku.generator.PuzzleStack;
+import com.rarid.sudoku.generator.SudokuGenerator;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// Keeps a few pre-generated puzzles per difficulty on disk so a new game can
+// start without waiting for the generator. A background thread tops the pool
+// up after every take.
+public class PuzzlePool {
+    private static final String PREFS_NAME = "sudoku_pool";
+    private static final int DEFAULT_DEPTH = 3;
+
+    private static final ExecutorService WORKER = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(() -> {
+            Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+            runnable.run();
+        }, "PuzzlePool");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private static final Map<String, PuzzleStack> STACKS = new HashMap<>();
+
+    // Returns a ready puzzle, or null when the pool is empty and the caller
+    // has to generate one itself. Either way a refill is scheduled.
+    public static SudokuGenerator.PuzzleWithSolution take(Context context, String difficulty) {
+        SudokuGenerator.PuzzleWithSolution pws = null;
+        try {
+            pws = getStack(context, difficulty).pop();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        String key = difficulty + (pws != null ? "_hits" : "_misses");
+        prefs.edit().putInt(key, prefs.getInt(key, 0) + 1).apply();
+        refill(context, difficulty);
+        return pws;
+    }
+
+    // Tops the pool up to the configured depth on the background thread
+    public static void refill(Context context, String difficulty) {
+        Context appContext = context.getApplicationContext();
+        WORKER.execute(() -> {
+            PuzzleStack stack = getStack(appContext, difficulty);
+            int depth = getDepth(appContext);
+            try {
+                while (stack.size() < depth) {
+                    SudokuGenerator.PuzzleWithSolution pws = SudokuGenerator
+                            .generatePuzzleAndSolutionForDifficulty(difficulty);
+                    stack.push(pws.puzzle, pws.solution);
+                }
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        });
+    }
+
+    public static int getDepth(Context context) {
+        SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        return prefs.getInt("depth", DEFAULT_DEPTH);
+    }
+
+    public static void setDepth(Context context, int depth) {
+        SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        prefs.edit().putInt("depth", depth).apply();
+    }
+
+    // Number of new games that started from a pooled puzzle
+    public static int getHits(Context context, String difficulty) {
+        SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        return prefs.getInt(difficulty + "_hits", 0);
+    }
+
+    // Number of new games that found the pool empty and generated in place
+    public static int getMisses(Context context, String difficulty) {
+        SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        return prefs.getInt(difficulty + "_misses", 0);
+    }
+
+    private static synchronized PuzzleStack getStack(Context context, String difficulty) {
+        PuzzleStack stack = STACKS.get(difficulty);
+        if (stack == null) {
+            stack = new PuzzleStack(new File(context.getFilesDir(), difficulty + "_pool.bin"));
+            STACKS.put(difficulty, stack);
+        }
+        return stack;
+    }
+}
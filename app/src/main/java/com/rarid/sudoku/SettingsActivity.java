@@ -5,12 +5,19 @@ import android.content.res.Configuration;
 import android.graphics.Color;
 import android.os.Bundle;
 import android.view.View;
+import android.widget.AdapterView;
+import android.widget.ArrayAdapter;
 import android.widget.Button;
 import android.widget.ImageView;
+import android.widget.Spinner;
 import android.widget.Switch;
 import android.widget.TextView;
 import androidx.appcompat.app.AppCompatActivity;
 
+import com.rarid.sudoku.generator.Solvers;
+
+import java.util.List;
+
 public class SettingsActivity extends AppCompatActivity {
 
     private TextView hintTextView;
@@ -18,6 +25,7 @@ public class SettingsActivity extends AppCompatActivity {
     private Button newGameButton;
     private Switch autoValidateSwitch;
     private Switch pencilmarkSwitch;
+    private Spinner solverSpinner;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -30,6 +38,7 @@ public class SettingsActivity extends AppCompatActivity {
         hintTextView = findViewById(R.id.tv_hint_label);
         autoValidateSwitch = findViewById(R.id.switch_autovalidate);
         pencilmarkSwitch = findViewById(R.id.switch_pencilmark);
+        solverSpinner = findViewById(R.id.spinner_solver);
 
         // Load preferences
         SharedPreferences prefs = getSharedPreferences("sudoku_settings", MODE_PRIVATE);
@@ -54,6 +63,24 @@ public class SettingsActivity extends AppCompatActivity {
             prefs.edit().putBoolean("pencilmark_enabled", isChecked).apply();
         });
 
+        // The engines GameActivity can solve with, see Solvers
+        List<String> engines = Solvers.names();
+        ArrayAdapter<String> engineAdapter = new ArrayAdapter<>(this, android.R.layout.simple_spinner_item, engines);
+        engineAdapter.setDropDownViewResource(android.R.layout.simple_spinner_dropdown_item);
+        solverSpinner.setAdapter(engineAdapter);
+        int selected = engines.indexOf(prefs.getString("solver_engine", Solvers.DEFAULT));
+        solverSpinner.setSelection(selected >= 0 ? selected : engines.indexOf(Solvers.DEFAULT));
+        solverSpinner.setOnItemSelectedListener(new AdapterView.OnItemSelectedListener() {
+            @Override
+            public void onItemSelected(AdapterView<?> parent, View view, int position, long id) {
+                prefs.edit().putString("solver_engine", engines.get(position)).apply();
+            }
+
+            @Override
+            public void onNothingSelected(AdapterView<?> parent) {
+            }
+        });
+
         newGameButton.setOnClickListener(v -> {
             setResult(RESULT_OK);
             finish();
@@ -21,11 +21,14 @@ public class SudokuBoardView extends View {
     private Paint cellBgPaint;
     private int cellSize;
     private int boardSize;
+    // Rows of the board and side of a box, the grid given to setGrid decides
+    private int size = 9;
+    private int box = 3;
     private int[][] sudokuGrid = new int[9][9];
     private boolean[][] isClue = new boolean[9][9];
     private boolean[][] isError = new boolean[9][9];
     private int selectedRow = -1, selectedCol = -1;
-    private final Set<Integer>[][] pencilmarks = new HashSet[9][9];
+    private Set<Integer>[][] pencilmarks = new HashSet[9][9];
     private boolean pencilmarkMode = false; // If true, number input will add notes instead of set
     private Integer highlightedNumber = null; // null means no highlight
     
@@ -62,21 +65,49 @@ public class SudokuBoardView extends View {
 
         cellBgPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
         cellBgPaint.setColor(Color.WHITE);
-        for (int r = 0; r < 9; r++)
-            for (int c = 0; c < 9; c++)
+        for (int r = 0; r < size; r++)
+            for (int c = 0; c < size; c++)
                 pencilmarks[r][c] = new HashSet<>();
     }
 
+    // Switches to a board with the given number of rows, clearing the notes
+    // and the selection when the size changes
+    @SuppressWarnings("unchecked")
+    private void resize(int newSize) {
+        if (newSize == size)
+            return;
+        size = newSize;
+        box = BoardValidator.boxSize(newSize);
+        pencilmarks = new HashSet[size][size];
+        for (int r = 0; r < size; r++)
+            for (int c = 0; c < size; c++)
+                pencilmarks[r][c] = new HashSet<>();
+        selectedRow = -1;
+        selectedCol = -1;
+        highlightedNumber = null;
+        moveHistory.clear();
+        updateTextSize();
+    }
+
+    private void updateTextSize() {
+        cellSize = boardSize / size;
+        textPaint.setTextSize(digitTextSize(cellSize));
+    }
+
+    // Two-digit values need a smaller font to fit the cell
+    private float digitTextSize(float cell) {
+        return cell * (size > 9 ? 0.45f : 0.6f);
+    }
+
     @Override
     protected void onSizeChanged(int w, int h, int oldw, int oldh) {
         // Use the full available space for the board
         boardSize = Math.min(w, h);
-        cellSize = boardSize / 9;
 
         // Scale lines and text based on size
         thickLinePaint.setStrokeWidth(boardSize / 60f);
         thinLinePaint.setStrokeWidth(boardSize / 180f);
-        textPaint.setTextSize(cellSize * 0.6f);
+        updateTextSize();
     }
 
     @Override
@@ -103,7 +134,7 @@ public class SudokuBoardView extends View {
         float cellAreaLeft = left + margin + currentOffsetX;
         float cellAreaTop = top + margin + currentOffsetY;
         float cellAreaSize = drawBoardSize - 2 * margin;
-        float cell = cellAreaSize / 9f;
+        float cell = cellAreaSize / size;
 
         // Apply opacity variation
         float radius = cellAreaSize / 18f;
@@ -113,8 +144,8 @@ public class SudokuBoardView extends View {
         canvas.drawRoundRect(bgRect, radius, radius, cellBgPaint);
 
         // Draw cells and numbers
-        for (int r = 0; r < 9; r++) {
-            for (int c = 0; c < 9; c++) {
+        for (int r = 0; r < size; r++) {
+            for (int c = 0; c < size; c++) {
                 float x = cellAreaLeft + c * cell;
                 float y = cellAreaTop + r * cell;
                 // Highlight selected cell
@@ -125,7 +156,7 @@ public class SudokuBoardView extends View {
                         && sudokuGrid[r][c] != 0) {
                     cellBgPaint.setColor(0xFFB3FFD9); // light green for highlight
                     canvas.drawRect(x, y, x + cell, y + cell, cellBgPaint);
-                } else if ((r / 3 + c / 3) % 2 == 0) {
+                } else if ((r / box + c / box) % 2 == 0) {
                     cellBgPaint.setColor(0xFFF7F7F7);
                     canvas.drawRect(x, y, x + cell, y + cell, cellBgPaint);
                 }
@@ -142,30 +173,30 @@ public class SudokuBoardView extends View {
                     float textY = y + cell / 2f - (textPaint.descent() + textPaint.ascent()) / 2;
                     canvas.drawText(String.valueOf(val), x + cell / 2f, textY, textPaint);
                 } else if (!pencilmarks[r][c].isEmpty()) {
-                    // Draw notes (pencil marks)
-                    float pencilmarkTextSize = cell * 0.22f;
+                    // Draw notes (pencil marks) in a box x box mini grid
+                    float pencilmarkTextSize = cell * 0.66f / box;
                     textPaint.setTextSize(pencilmarkTextSize);
                     textPaint.setColor(0xFF888888); // Gray for notes
                     int count = 0;
-                    for (int n = 1; n <= 9; n++) {
+                    for (int n = 1; n <= size; n++) {
                         if (pencilmarks[r][c].contains(n)) {
-                            int row = (count) / 3;
-                            int col = (count) % 3;
-                            float ex = x + (col + 0.5f) * cell / 3f;
-                            float ey = y + (row + 0.5f) * cell / 3f
+                            int row = (count) / box;
+                            int col = (count) % box;
+                            float ex = x + (col + 0.5f) * cell / box;
+                            float ey = y + (row + 0.5f) * cell / box
                                     - (textPaint.descent() + textPaint.ascent()) / 2;
                             canvas.drawText(String.valueOf(n), ex, ey, textPaint);
                         }
                         count++;
                     }
-                    textPaint.setTextSize(cell * 0.6f); // Restore text size
+                    textPaint.setTextSize(digitTextSize(cell)); // Restore text size
                 }
             }
         }
 
         // Draw all thin (light gray) lines first
-        for (int i = 0; i <= 9; i++) {
-            if (i % 3 != 0) {
+        for (int i = 0; i <= size; i++) {
+            if (i % box != 0) {
                 float x = cellAreaLeft + i * cell;
                 canvas.drawLine(x, cellAreaTop, x, cellAreaTop + cellAreaSize, thinLinePaint);
                 float y = cellAreaTop + i * cell;
@@ -174,13 +205,13 @@ public class SudokuBoardView extends View {
         }
         // Draw all thick (black) lines last, so they appear on top
         float halfThick = thickLinePaint.getStrokeWidth() / 2f;
-        for (int i = 0; i <= 9; i++) {
-            if (i % 3 == 0) {
+        for (int i = 0; i <= size; i++) {
+            if (i % box == 0) {
                 float x, y;
                 if (i == 0) {
                     x = cellAreaLeft - halfThick; // Draw slightly outside for border
                     y = cellAreaTop - halfThick; // Draw slightly outside for border
-                } else if (i == 9) {
+                } else if (i == size) {
                     x = cellAreaLeft + cellAreaSize + halfThick; // Draw slightly outside for border
                     y = cellAreaTop + cellAreaSize + halfThick; // Draw slightly outside for border
                 } else {
@@ -230,7 +261,7 @@ public class SudokuBoardView extends View {
             float cellAreaLeft = boardLeft + margin;
             float cellAreaTop = boardTop + margin;
             float cellAreaSize = drawBoardSize - 2 * margin;
-            float currentCellSize = cellAreaSize / 9f;
+            float currentCellSize = cellAreaSize / size;
 
             if (touchX >= cellAreaLeft && touchX < cellAreaLeft + cellAreaSize && touchY >= cellAreaTop
                     && touchY < cellAreaTop + cellAreaSize) {
@@ -249,13 +280,15 @@ public class SudokuBoardView extends View {
         return true;
     }
 
-    // Set the initial grid and mark clues
+    // Set the initial grid and mark clues. The board takes the size of the
+    // grid, 9x9 or any other square size such as 16x16 or 25x25.
     public void setGrid(int[][] grid) {
-        this.sudokuGrid = new int[9][9];
-        this.isClue = new boolean[9][9];
-        this.isError = new boolean[9][9];
-        for (int r = 0; r < 9; r++) {
-            for (int c = 0; c < 9; c++) {
+        resize(grid.length);
+        this.sudokuGrid = new int[size][size];
+        this.isClue = new boolean[size][size];
+        this.isError = new boolean[size][size];
+        for (int r = 0; r < size; r++) {
+            for (int c = 0; c < size; c++) {
                 this.sudokuGrid[r][c] = grid[r][c];
                 this.isClue[r][c] = grid[r][c] != 0;
                 this.isError[r][c] = false;
@@ -320,47 +353,7 @@ public class SudokuBoardView extends View {
 
     // Check for visible errors (row, col, box)
     public void checkErrors() {
-        // Reset errors
-        for (int r = 0; r < 9; r++)
-            for (int c = 0; c < 9; c++)
-                isError[r][c] = false;
-
-        // Check for duplicates
-        for (int r = 0; r < 9; r++) {
-            for (int c = 0; c < 9; c++) {
-                int val = sudokuGrid[r][c];
-                if (val == 0)
-                    continue;
-                // Only check user input
-                if (isClue[r][c])
-                    continue;
-                // Row
-                for (int cc = 0; cc < 9; cc++) {
-                    if (cc != c && sudokuGrid[r][cc] == val) {
-                        isError[r][c] = true;
-                        break;
-                    }
-                }
-                // Col
-                for (int rr = 0; rr < 9; rr++) {
-                    if (rr != r && sudokuGrid[rr][c] == val) {
-                        isError[r][c] = true;
-                        break;
-                    }
-                }
-                // Box
-                int boxRow = (r / 3) * 3, boxCol = (c / 3) * 3;
-                for (int dr = 0; dr < 3; dr++) {
-                    for (int dc = 0; dc < 3; dc++) {
-                        int rr = boxRow + dr, cc = boxCol + dc;
-                        if ((rr != r || cc != c) && sudokuGrid[rr][cc] == val) {
-                            isError[r][c] = true;
-                            break;
-                        }
-                    }
-                }
-            }
-        }
+        BoardValidator.findErrors(sudokuGrid, isClue, isError);
     }
 
     // Listener for cell selection (optional, for GameActivity)
@@ -384,29 +377,29 @@ public class SudokuBoardView extends View {
     }
 
     public int[][] getGrid() {
-        int[][] copy = new int[9][9];
-        for (int r = 0; r < 9; r++)
-            System.arraycopy(sudokuGrid[r], 0, copy[r], 0, 9);
+        int[][] copy = new int[size][size];
+        for (int r = 0; r < size; r++)
+            System.arraycopy(sudokuGrid[r], 0, copy[r], 0, size);
         return copy;
     }
 
     public boolean[][] getIsClue() {
-        boolean[][] copy = new boolean[9][9];
-        for (int r = 0; r < 9; r++)
-            System.arraycopy(isClue[r], 0, copy[r], 0, 9);
+        boolean[][] copy = new boolean[size][size];
+        for (int r = 0; r < size; r++)
+            System.arraycopy(isClue[r], 0, copy[r], 0, size);
         return copy;
     }
 
     public boolean[][] getIsError() {
-        boolean[][] copy = new boolean[9][9];
-        for (int r = 0; r < 9; r++)
-            System.arraycopy(isError[r], 0, copy[r], 0, 9);
+        boolean[][] copy = new boolean[size][size];
+        for (int r = 0; r < size; r++)
+            System.arraycopy(isError[r], 0, copy[r], 0, size);
         return copy;
     }
 
     public void setIsError(boolean[][] error) {
-        for (int r = 0; r < 9; r++)
-            System.arraycopy(error[r], 0, isError[r], 0, 9);
+        for (int r = 0; r < size; r++)
+            System.arraycopy(error[r], 0, isError[r], 0, size);
         invalidate();
     }
 
@@ -415,19 +408,20 @@ public class SudokuBoardView extends View {
     }
 
     public void setPencilmarks(Set<Integer>[][] pencilmarks) {
-        for (int r = 0; r < 9; r++)
-            for (int c = 0; c < 9; c++)
+        for (int r = 0; r < size; r++)
+            for (int c = 0; c < size; c++)
                 this.pencilmarks[r][c] = new HashSet<>(pencilmarks[r][c]);
         invalidate();
     }
 
     // Optionally, add a method to set both grid and isClue at once
     public void setGridAndClues(int[][] grid, boolean[][] clues) {
-        this.sudokuGrid = new int[9][9];
-        this.isClue = new boolean[9][9];
-        this.isError = new boolean[9][9];
-        for (int r = 0; r < 9; r++) {
-            for (int c = 0; c < 9; c++) {
+        resize(grid.length);
+        this.sudokuGrid = new int[size][size];
+        this.isClue = new boolean[size][size];
+        this.isError = new boolean[size][size];
+        for (int r = 0; r < size; r++) {
+            for (int c = 0; c < size; c++) {
                 this.sudokuGrid[r][c] = grid[r][c];
                 this.isClue[r][c] = clues[r][c];
                 this.isError[r][c] = false;
@@ -437,7 +431,7 @@ public class SudokuBoardView extends View {
     }
 
     public void setCellAsClue(int row, int col) {
-        if (row >= 0 && row < 9 && col >= 0 && col < 9) {
+        if (row >= 0 && row < size && col >= 0 && col < size) {
             isClue[row][col] = true;
             invalidate();
         }
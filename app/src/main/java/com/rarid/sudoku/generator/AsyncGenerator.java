@@ -0,0 +1,82 @@
+package com.rarid.sudoku.generator;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// Runs puzzle generation on a dedicated background thread. The returned
+// Future can be cancelled, which interrupts the generator so it stops
+// burning CPU, and a time budget caps how long a single puzzle may take.
+public final class AsyncGenerator {
+    // Both methods are called on the generator thread and skipped once the
+    // task was cancelled. A cancel that arrives while one is already running
+    // cannot stop it, so a UI that cancels must still check on its own thread
+    // whether the result is wanted.
+    public interface Callback {
+        void onGenerated(SudokuGenerator.PuzzleWithSolution pws);
+
+        // Called instead of onGenerated when the generator threw. Nobody
+        // reads the Future, so this is the only news of the failure.
+        void onFailed(Throwable error);
+    }
+
+    private static final ExecutorService EXECUTOR = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "SudokuGenerator");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.NORM_PRIORITY - 1);
+        return thread;
+    });
+
+    // Work of the last generation that finished, see GeneratorMetrics
+    private static volatile GeneratorMetrics lastMetrics;
+
+    private AsyncGenerator() {
+    }
+
+    // What the last finished generation cost, null before the first one.
+    // Set before its callback runs.
+    public static GeneratorMetrics lastMetrics() {
+        return lastMetrics;
+    }
+
+    public static Future<SudokuGenerator.PuzzleWithSolution> generate(String difficulty, long budgetMillis,
+            Callback callback) {
+        return submit(() -> SudokuGenerator.generatePuzzleAndSolutionForDifficulty(difficulty, budgetMillis),
+                callback);
+    }
+
+    // Generates a board of another size than 9x9, see
+    // SudokuGenerator.generatePuzzleAndSolution
+    public static Future<SudokuGenerator.PuzzleWithSolution> generate(int size, String difficulty,
+            Callback callback) {
+        return submit(() -> SudokuGenerator.generatePuzzleAndSolution(size, difficulty), callback);
+    }
+
+    // Generates the puzzle of the day, see SudokuGenerator.generateDailyPuzzle
+    public static Future<SudokuGenerator.PuzzleWithSolution> generateDaily(int year, int month, int day,
+            Callback callback) {
+        return submit(() -> SudokuGenerator.generateDailyPuzzle(year, month, day), callback);
+    }
+
+    private static Future<SudokuGenerator.PuzzleWithSolution> submit(
+            Callable<SudokuGenerator.PuzzleWithSolution> task, Callback callback) {
+        return EXECUTOR.submit(() -> {
+            GeneratorMetrics before = GeneratorMetrics.current().snapshot();
+            SudokuGenerator.PuzzleWithSolution pws;
+            try {
+                pws = task.call();
+            } catch (Exception | Error e) {
+                if (callback != null && !Thread.currentThread().isInterrupted())
+                    callback.onFailed(e);
+                throw e;
+            }
+            lastMetrics = GeneratorMetrics.current().since(before);
+            if (Thread.currentThread().isInterrupted())
+                return null;
+            if (callback != null)
+                callback.onGenerated(pws);
+            return pws;
+        });
+    }
+}
@@ -0,0 +1,185 @@
+package com.rarid.sudoku.generator;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Generates a batch of unique puzzles on a pool of worker threads. Every
+// worker owns its Random so the workers never contend on a shared seed,
+// duplicates are filtered by canonical form, so a puzzle that is only a
+// relabeled, rotated or shuffled copy of an accepted one is rejected too, and
+// accepted puzzles are streamed straight to the writer.
+class BatchGenerator implements Preloadable {
+    private final String difficulty;
+    private final int count;
+    private final int threads;
+    private final boolean transformGrids;
+    private final Long seed;
+    private PuzzleOutput writer;
+    private volatile IOException writeError;
+
+    private final CanonicalKeySet puzzleSet;
+    private final Canonicalizer preloadCanonicalizer = new Canonicalizer();
+    private final long[] preloadKey = new long[2];
+    private final AtomicInteger accepted = new AtomicInteger();
+    private final AtomicInteger duplicates = new AtomicInteger();
+    private final AtomicInteger notUnique = new AtomicInteger();
+    private Solver verifier;
+    private final long[] busyNanos;
+    private final int[] generatedBy;
+    // Per worker, merged for the report
+    private final LatencyHistogram[] latency;
+    private final int[][] clueCounts;
+    private long wallNanos;
+    private GeneratorMetrics metrics;
+
+    // With a seed every worker gets its own fixed stream, the batch is only
+    // repeatable with a single thread since workers race for the slots
+    BatchGenerator(String difficulty, int count, int threads, boolean transformGrids, Long seed) {
+        this.difficulty = difficulty;
+        this.count = count;
+        this.threads = threads;
+        this.transformGrids = transformGrids;
+        this.seed = seed;
+        this.busyNanos = new long[threads];
+        this.generatedBy = new int[threads];
+        this.latency = new LatencyHistogram[threads];
+        this.clueCounts = new int[threads][82];
+        for (int i = 0; i < threads; i++)
+            latency[i] = new LatencyHistogram();
+        this.puzzleSet = new CanonicalKeySet(count);
+    }
+
+    // Double-checks every puzzle with the given engine before it is written
+    // and drops the ones it does not find unique
+    void verifyWith(Solver solver) {
+        this.verifier = solver;
+    }
+
+    // Counts a puzzle written by an earlier run towards the batch
+    @Override
+    public void preload(int[][] puzzle) {
+        preloadCanonicalizer.key(puzzle, preloadKey);
+        if (puzzleSet.add(preloadKey))
+            accepted.incrementAndGet();
+    }
+
+    int remaining() {
+        return Math.max(0, count - accepted.get());
+    }
+
+    void run(PuzzleOutput writer) throws IOException {
+        this.writer = writer;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        long start = System.nanoTime();
+        GeneratorMetrics before = GeneratorMetrics.total();
+        for (int i = 0; i < threads; i++) {
+            final int worker = i;
+            pool.execute(() -> work(worker));
+        }
+        pool.shutdown();
+        try {
+            while (!pool.awaitTermination(1, TimeUnit.SECONDS)) {
+                // Keep waiting, large batches can take hours
+            }
+        } catch (InterruptedException e) {
+            pool.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+        wallNanos = System.nanoTime() - start;
+        metrics = GeneratorMetrics.total().since(before);
+        if (writeError != null)
+            throw writeError;
+    }
+
+    private void work(int worker) {
+        Random random = seed != null ? new Random(seed + worker * 0x9E3779B97F4A7C15L) : new Random();
+        TransformSolutionGenerator grids = transformGrids
+                ? new TransformSolutionGenerator(TransformSolutionGenerator.DEFAULT_SEEDS, random)
+                : null;
+        Canonicalizer canonicalizer = new Canonicalizer();
+        long[] key = new long[2];
+        while (accepted.get() < count && writeError == null && !Thread.currentThread().isInterrupted()) {
+            long start = System.nanoTime();
+            SudokuGenerator.PuzzleWithSolution pws = SudokuGenerator.generateRated(difficulty, random,
+                    Long.MAX_VALUE, grids);
+            int[][] puzzle = pws.puzzle;
+            int[][] solution = pws.solution;
+            latency[worker].record(System.nanoTime() - start);
+            canonicalizer.key(puzzle, key);
+            boolean unique = verifier == null || verifier.isUnique(puzzle);
+            busyNanos[worker] += System.nanoTime() - start;
+
+            if (!unique) {
+                notUnique.incrementAndGet();
+                continue;
+            }
+            if (!puzzleSet.add(key)) {
+                duplicates.incrementAndGet();
+                continue;
+            }
+            // Claim a slot only after the puzzle is known to be unique, so the
+            // batch never overshoots the requested count
+            if (accepted.incrementAndGet() > count)
+                break;
+            try {
+                writer.write(puzzle, solution);
+            } catch (IOException e) {
+                writeError = e;
+                break;
+            }
+            generatedBy[worker]++;
+            clueCounts[worker][SudokuGenerator.clues(puzzle)]++;
+        }
+    }
+
+    void printReport(PrintStream out) {
+        double seconds = wallNanos / 1e9;
+        int total = 0;
+        for (int n : generatedBy)
+            total += n;
+        out.printf("Generated %d %s puzzles in %.2f s (%.1f puzzles/sec)%n", total, difficulty, seconds,
+                total / seconds);
+
+        LatencyHistogram all = new LatencyHistogram();
+        for (LatencyHistogram h : latency)
+            all.add(h);
+        out.printf("Time per puzzle: p50 %s, p95 %s, p99 %s, max %s%n", millis(all.percentile(50)),
+                millis(all.percentile(95)), millis(all.percentile(99)), millis(all.max()));
+
+        int rejected = duplicates.get();
+        long attempts = all.count();
+        out.printf("Duplicates rejected: %d of %d (%.2f%%)%n", rejected, attempts,
+                attempts == 0 ? 0.0 : 100.0 * rejected / attempts);
+
+        if (verifier != null)
+            out.printf("Checked unique with %s: %d rejected%n", verifier.name(), notUnique.get());
+
+        out.println("Clues:");
+        for (int clues = 0; clues <= 81; clues++) {
+            int n = 0;
+            for (int[] counts : clueCounts)
+                n += counts[clues];
+            if (n > 0)
+                out.printf("  %2d: %7d (%5.1f%%)%n", clues, n, 100.0 * n / total);
+        }
+
+        for (int i = 0; i < threads; i++) {
+            out.printf("  thread %d: %d puzzles, %.0f%% busy%n",
+                    i, generatedBy[i], 100.0 * busyNanos[i] / wallNanos);
+        }
+
+        if (metrics != null) {
+            out.println("Search effort:");
+            metrics.print(out);
+        }
+    }
+
+    private static String millis(long nanos) {
+        return String.format("%.2f ms", nanos / 1e6);
+    }
+}
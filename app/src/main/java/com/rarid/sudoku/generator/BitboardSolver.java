@@ -0,0 +1,186 @@
+package com.rarid.sudoku.generator;
+
+import java.util.Random;
+
+// Solver core that keeps a 9-bit occupancy mask for every row, column and box.
+// Bit (d - 1) is set when digit d is already used in that unit, so the free
+// candidates of a cell are ~(row | col | box) and are picked with bit tricks
+// instead of rescanning the board for every digit.
+final class BitboardSolver {
+    static final int ALL = 0x1FF;
+
+    static final int[] ROW = new int[81];
+    static final int[] COL = new int[81];
+    static final int[] BOX = new int[81];
+
+    static {
+        for (int i = 0; i < 81; i++) {
+            ROW[i] = i / 9;
+            COL[i] = i % 9;
+            BOX[i] = (i / 27) * 3 + (i % 9) / 3;
+        }
+    }
+
+    private final int[] cells = new int[81];
+    private final int[] rows = new int[9];
+    private final int[] cols = new int[9];
+    private final int[] boxes = new int[9];
+
+    // Shuffled candidates per cell, preallocated so a fill allocates nothing
+    private final int[][] order = new int[81][9];
+
+    // Digits placed and taken back by the last fill or countSolutions call,
+    // see GeneratorMetrics
+    private long nodes;
+    private long backtracks;
+
+    // Loads a board, returns false if the given digits already conflict
+    boolean load(int[][] board) {
+        clear();
+        for (int i = 0; i < 81; i++) {
+            int val = board[ROW[i]][COL[i]];
+            if (val == 0)
+                continue;
+            int bit = 1 << (val - 1);
+            if (((rows[ROW[i]] | cols[COL[i]] | boxes[BOX[i]]) & bit) != 0)
+                return false;
+            place(i, bit);
+        }
+        return true;
+    }
+
+    void clear() {
+        for (int i = 0; i < 81; i++)
+            cells[i] = 0;
+        for (int i = 0; i < 9; i++) {
+            rows[i] = 0;
+            cols[i] = 0;
+            boxes[i] = 0;
+        }
+    }
+
+    void store(int[][] board) {
+        for (int i = 0; i < 81; i++)
+            board[ROW[i]][COL[i]] = cells[i];
+    }
+
+    // Fills every empty cell in row-major order, trying candidates in random
+    // order
+    boolean fill(Random random) {
+        nodes = 0;
+        backtracks = 0;
+        return fill(0, random);
+    }
+
+    long nodes() {
+        return nodes;
+    }
+
+    long backtracks() {
+        return backtracks;
+    }
+
+    private boolean fill(int pos, Random random) {
+        while (pos < 81 && cells[pos] != 0)
+            pos++;
+        if (pos == 81)
+            return true;
+
+        int free = candidates(pos);
+        int[] order = this.order[pos];
+        int n = 0;
+        while (free != 0) {
+            int bit = free & -free;
+            free ^= bit;
+            order[n++] = bit;
+        }
+        for (int i = n - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int tmp = order[i];
+            order[i] = order[j];
+            order[j] = tmp;
+        }
+
+        for (int i = 0; i < n; i++) {
+            place(pos, order[i]);
+            nodes++;
+            if (fill(pos + 1, random))
+                return true;
+            remove(pos, order[i]);
+            backtracks++;
+        }
+        return false;
+    }
+
+    // Fills every empty cell in row-major order trying digits in increasing
+    // order, so the answer is always the same. Returns false and leaves the
+    // board unchanged when there is no solution.
+    boolean solve() {
+        return solve(0);
+    }
+
+    private boolean solve(int pos) {
+        while (pos < 81 && cells[pos] != 0)
+            pos++;
+        if (pos == 81)
+            return true;
+
+        int free = candidates(pos);
+        while (free != 0) {
+            int bit = free & -free;
+            free ^= bit;
+            place(pos, bit);
+            if (solve(pos + 1))
+                return true;
+            remove(pos, bit);
+        }
+        return false;
+    }
+
+    // Counts solutions of the loaded board, stopping as soon as limit is
+    // reached. The board is left unchanged.
+    int countSolutions(int limit) {
+        nodes = 0;
+        backtracks = 0;
+        return count(0, 0, limit);
+    }
+
+    private int count(int pos, int found, int limit) {
+        while (pos < 81 && cells[pos] != 0)
+            pos++;
+        if (pos == 81)
+            return found + 1;
+
+        int free = candidates(pos);
+        while (free != 0) {
+            int bit = free & -free;
+            free ^= bit;
+            place(pos, bit);
+            nodes++;
+            found = count(pos + 1, found, limit);
+            remove(pos, bit);
+            backtracks++;
+            if (found >= limit)
+                return found; // early exit
+        }
+        return found;
+    }
+
+    private int candidates(int pos) {
+        return ~(rows[ROW[pos]] | cols[COL[pos]] | boxes[BOX[pos]]) & ALL;
+    }
+
+    private void place(int pos, int bit) {
+        cells[pos] = Integer.numberOfTrailingZeros(bit) + 1;
+        rows[ROW[pos]] |= bit;
+        cols[COL[pos]] |= bit;
+        boxes[BOX[pos]] |= bit;
+    }
+
+    private void remove(int pos, int bit) {
+        cells[pos] = 0;
+        rows[ROW[pos]] &= ~bit;
+        cols[COL[pos]] &= ~bit;
+        boxes[BOX[pos]] &= ~bit;
+    }
+}
@@ -0,0 +1,491 @@
+package com.rarid.sudoku.generator;
+
+import com.google.gson.Strictness;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicReference;
+
+// Solves every puzzle of a file on all cores, to validate third-party
+// collections before they are turned into packs. Two input formats are read:
+//   lines - one puzzle per line as 81 characters, 1-9 for clues and 0 or .
+//           for blanks. Other words on the line are ignored, so the
+//           benchmark corpus works too, and # starts a comment.
+//   json  - the generator's json or ndjson output, any board size
+//
+// Lines come out as "puzzle solution count", with - for a missing solution,
+// and JSON as ndjson objects with a "solutions" field. A count of 2 means two
+// or more. Output keeps the input order.
+//
+// The file is streamed: a reader, the solver threads and a writer are
+// connected by bounded queues, and a window of permits caps the puzzles in
+// flight, so memory stays flat on files with millions of puzzles.
+public final class BulkSolverCli {
+    private static final String USAGE = "Usage: BulkSolverCli --in FILE [--out FILE] [--threads N]\n"
+            + "           [--solver backtrack|dlx|mrv|propagate]\n"
+            + "Without --out the results go to the input name with .solved appended.";
+
+    // Puzzles in flight per solver thread
+    private static final int WINDOW_PER_THREAD = 256;
+    private static final int FLUSH_EVERY = 1000;
+
+    private BulkSolverCli() {
+    }
+
+    // One puzzle on its way through the pipeline. A null puzzle marks input
+    // that could not be read as a board.
+    private static final class Job {
+        final long index;
+        final String raw;
+        final int[][] puzzle;
+        // False when the clues already break a rule
+        boolean valid;
+        int solutions;
+        int[][] solution;
+        // The solver threw on this puzzle, see solve
+        boolean failed;
+
+        Job(long index, String raw, int[][] puzzle) {
+            this.index = index;
+            this.raw = raw;
+            this.puzzle = puzzle;
+        }
+    }
+
+    // Sent once per solver thread after the last puzzle
+    private static final Job END = new Job(-1, null, null);
+
+    public static void main(String[] args) {
+        System.exit(run(args));
+    }
+
+    private static int run(String[] args) {
+        String in = null;
+        String out = null;
+        int threads = Runtime.getRuntime().availableProcessors();
+        try {
+            for (int i = 0; i < args.length; i++) {
+                String flag = args[i];
+                if (flag.equals("--help") || flag.equals("-h")) {
+                    System.out.println(USAGE);
+                    return 0;
+                }
+                if (i + 1 >= args.length)
+                    throw new IllegalArgumentException("Missing value for " + flag);
+                String value = args[++i];
+                switch (flag) {
+                    case "--in":
+                        in = value;
+                        break;
+                    case "--out":
+                        out = value;
+                        break;
+                    case "--threads":
+                        threads = Integer.parseInt(value);
+                        if (threads <= 0)
+                            throw new IllegalArgumentException("--threads must be a positive number");
+                        break;
+                    case "--solver":
+                        SudokuGenerator.setSolver(value.toLowerCase());
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Unknown option " + flag);
+                }
+            }
+            if (in == null)
+                throw new IllegalArgumentException("Missing --in");
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println(USAGE);
+            return 2;
+        }
+        if (out == null)
+            out = in + ".solved";
+
+        try {
+            Report report = solveFile(in, out, threads);
+            report.print();
+            System.out.println("Results written to " + out);
+            return 0;
+        } catch (IOException e) {
+            System.err.println("Error: " + e.getMessage());
+            return 1;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return 1;
+        }
+    }
+
+    private static final class Report {
+        long total;
+        long invalid;
+        long unsolvable;
+        long unique;
+        long multiple;
+        long nanos;
+
+        void print() {
+            double seconds = nanos / 1e9;
+            System.out.printf("Solved %d puzzles in %.2f s (%.1f puzzles/sec)%n", total, seconds,
+                    seconds == 0 ? 0.0 : total / seconds);
+            System.out.printf("  unique: %d, multiple solutions: %d, no solution: %d, invalid: %d%n", unique,
+                    multiple, unsolvable, invalid);
+        }
+    }
+
+    private static Report solveFile(String in, String out, int threads) throws IOException, InterruptedException {
+        int window = threads * WINDOW_PER_THREAD;
+        BlockingQueue<Job> todo = new ArrayBlockingQueue<>(window + threads);
+        BlockingQueue<Job> done = new ArrayBlockingQueue<>(window + threads);
+        Semaphore inFlight = new Semaphore(window);
+        AtomicReference<IOException> failure = new AtomicReference<>();
+        Report report = new Report();
+        long start = System.nanoTime();
+
+        List<Thread> workers = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            Thread worker = new Thread(() -> solve(todo, done, failure), "BulkSolver-" + i);
+            worker.start();
+            workers.add(worker);
+        }
+
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new FileInputStream(in), StandardCharsets.UTF_8));
+                Writer writer = new BufferedWriter(new OutputStreamWriter(
+                        new FileOutputStream(out), StandardCharsets.UTF_8))) {
+            boolean json = startsWithJson(reader);
+            IOException[] writeError = new IOException[1];
+            Thread output = new Thread(() -> {
+                try {
+                    write(done, threads, writer, json, inFlight, report);
+                } catch (IOException e) {
+                    writeError[0] = e;
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }, "BulkSolver-writer");
+            output.start();
+
+            try {
+                if (json) {
+                    try {
+                        readJson(reader, todo, inFlight, failure);
+                    } catch (IllegalStateException | NumberFormatException e) {
+                        throw new IOException("Malformed JSON in " + in + ": " + e.getMessage(), e);
+                    }
+                } else
+                    readLines(reader, todo, inFlight, failure);
+            } finally {
+                for (int i = 0; i < threads; i++)
+                    todo.put(END);
+                for (Thread worker : workers)
+                    worker.join();
+                output.join();
+            }
+            if (failure.get() != null)
+                throw failure.get();
+            if (writeError[0] != null)
+                throw writeError[0];
+        }
+        report.nanos = System.nanoTime() - start;
+        return report;
+    }
+
+    private static boolean startsWithJson(BufferedReader reader) throws IOException {
+        while (true) {
+            reader.mark(1);
+            int ch = reader.read();
+            if (ch == -1)
+                return false;
+            if (!Character.isWhitespace(ch)) {
+                reader.reset();
+                return ch == '[' || ch == '{';
+            }
+        }
+    }
+
+    // Reading stops early once a solver thread failed
+    private static void readLines(BufferedReader reader, BlockingQueue<Job> todo, Semaphore inFlight,
+            AtomicReference<IOException> failure) throws IOException, InterruptedException {
+        long index = 0;
+        String line;
+        while (failure.get() == null && (line = reader.readLine()) != null) {
+            String trimmed = line.trim();
+            if (trimmed.isEmpty() || trimmed.startsWith("#"))
+                continue;
+            inFlight.acquire();
+            todo.put(new Job(index++, trimmed, parseLine(trimmed)));
+        }
+    }
+
+    // The first word of 81 characters, null when the line has none or it
+    // holds anything but digits and dots
+    private static int[][] parseLine(String line) {
+        for (String word : line.split("\\s+")) {
+            if (word.length() != 81)
+                continue;
+            int[][] puzzle = new int[9][9];
+            for (int i = 0; i < 81; i++) {
+                char ch = word.charAt(i);
+                if (ch == '.')
+                    continue;
+                if (ch < '0' || ch > '9')
+                    return null;
+                puzzle[i / 9][i % 9] = ch - '0';
+            }
+            return puzzle;
+        }
+        return null;
+    }
+
+    // Reads a JSON array of puzzle objects, or one object after another as in
+    // ndjson. Objects without a readable "puzzle" grid, and values that are
+    // not objects at all, count as invalid. Only a syntax error ends the run,
+    // since there is no way to find the next object after one.
+    private static void readJson(BufferedReader reader, BlockingQueue<Job> todo, Semaphore inFlight,
+            AtomicReference<IOException> failure) throws IOException, InterruptedException {
+        JsonReader json = new JsonReader(reader);
+        json.setStrictness(Strictness.LENIENT);
+        boolean array = json.peek() == JsonToken.BEGIN_ARRAY;
+        if (array)
+            json.beginArray();
+        long index = 0;
+        while (failure.get() == null && (array ? json.hasNext() : json.peek() != JsonToken.END_DOCUMENT)) {
+            int[][] puzzle = null;
+            if (json.peek() == JsonToken.BEGIN_OBJECT) {
+                json.beginObject();
+                while (json.hasNext()) {
+                    if (json.nextName().equals("puzzle"))
+                        puzzle = readGrid(json);
+                    else
+                        json.skipValue();
+                }
+                json.endObject();
+            } else {
+                json.skipValue();
+            }
+            inFlight.acquire();
+            todo.put(new Job(index++, null, puzzle != null && SizedBoard.isSupported(puzzle.length) ? puzzle : null));
+        }
+    }
+
+    // A square grid of digits, null for anything else. A value of another
+    // shape is skipped whole, so the reader stays on the next field.
+    private static int[][] readGrid(JsonReader json) throws IOException {
+        if (json.peek() != JsonToken.BEGIN_ARRAY) {
+            json.skipValue();
+            return null;
+        }
+        boolean readable = true;
+        List<int[]> rows = new ArrayList<>();
+        json.beginArray();
+        while (json.hasNext()) {
+            if (!readable || json.peek() != JsonToken.BEGIN_ARRAY) {
+                json.skipValue();
+                readable = false;
+                continue;
+            }
+            List<Integer> row = new ArrayList<>();
+            json.beginArray();
+            while (json.hasNext()) {
+                if (!readable || json.peek() != JsonToken.NUMBER) {
+                    json.skipValue();
+                    readable = false;
+                    continue;
+                }
+                // nextInt would throw on 1.5 or 1e99
+                double val = json.nextDouble();
+                if (val != (int) val)
+                    readable = false;
+                row.add((int) val);
+            }
+            json.endArray();
+            int[] values = new int[row.size()];
+            for (int i = 0; i < values.length; i++)
+                values[i] = row.get(i);
+            rows.add(values);
+        }
+        json.endArray();
+        if (!readable)
+            return null;
+        int size = rows.size();
+        for (int[] row : rows) {
+            if (row.length != size)
+                return null;
+            for (int val : row)
+                if (val < 0 || val > size)
+                    return null;
+        }
+        return rows.toArray(new int[0][]);
+    }
+
+    // A puzzle the solver throws on is still passed on, marked failed, so
+    // the writer does not wait for it. The first failure ends the run: the
+    // reader stops, the queue drains and solveFile throws it.
+    private static void solve(BlockingQueue<Job> todo, BlockingQueue<Job> done,
+            AtomicReference<IOException> failure) {
+        try {
+            while (true) {
+                Job job = todo.take();
+                if (job == END)
+                    return;
+                try {
+                    if (job.puzzle != null)
+                        job.valid = new SizedBoard(job.puzzle.length).load(job.puzzle);
+                    if (job.valid) {
+                        job.solutions = SudokuGenerator.countSolutions(job.puzzle, 2);
+                        if (job.solutions > 0)
+                            job.solution = SudokuGenerator.solvePuzzle(job.puzzle);
+                    }
+                } catch (RuntimeException | Error e) {
+                    job.failed = true;
+                    failure.compareAndSet(null,
+                            new IOException("Solving puzzle " + (job.index + 1) + " failed: " + e, e));
+                }
+                done.put(job);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            // The writer counts an END from every thread, however it stopped
+            putQuietly(done, END);
+        }
+    }
+
+    private static void putQuietly(BlockingQueue<Job> queue, Job job) {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                queue.put(job);
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted)
+            Thread.currentThread().interrupt();
+    }
+
+    // Writes results in input order. Results that finish early wait in a
+    // map, which the window keeps from growing past the puzzles in flight.
+    private static void write(BlockingQueue<Job> done, int threads, Writer writer, boolean json,
+            Semaphore inFlight, Report report) throws IOException, InterruptedException {
+        Map<Long, Job> waiting = new HashMap<>();
+        long next = 0;
+        int ended = 0;
+        IOException error = null;
+        while (ended < threads) {
+            Job job = done.take();
+            if (job == END) {
+                ended++;
+                continue;
+            }
+            waiting.put(job.index, job);
+            while ((job = waiting.remove(next)) != null) {
+                next++;
+                // After a failed write or solve the queue is still drained
+                // so the other threads can finish
+                if (!job.failed)
+                    count(job, report);
+                if (error == null && !job.failed) {
+                    try {
+                        writeResult(writer, job, json);
+                        if (next % FLUSH_EVERY == 0)
+                            writer.flush();
+                    } catch (IOException e) {
+                        error = e;
+                    }
+                }
+                inFlight.release();
+            }
+        }
+        if (error != null)
+            throw error;
+        writer.flush();
+    }
+
+    private static void count(Job job, Report report) {
+        report.total++;
+        if (!job.valid)
+            report.invalid++;
+        else if (job.solutions == 0)
+            report.unsolvable++;
+        else if (job.solutions == 1)
+            report.unique++;
+        else
+            report.multiple++;
+    }
+
+    private static void writeResult(Writer writer, Job job, boolean json) throws IOException {
+        if (!json) {
+            if (!job.valid) {
+                writer.write(job.raw + " - invalid\n");
+                return;
+            }
+            writer.write(digits(job.puzzle));
+            writer.write(' ');
+            writer.write(job.solution != null ? digits(job.solution) : "-");
+            writer.write(' ');
+            writer.write(Integer.toString(job.solutions));
+            writer.write('\n');
+            return;
+        }
+        // Built in memory first, a JsonWriter would flush the target
+        StringWriter line = new StringWriter();
+        JsonWriter out = new JsonWriter(line);
+        out.beginObject();
+        out.name("puzzle");
+        writeGrid(out, job.puzzle);
+        out.name("solution");
+        writeGrid(out, job.solution);
+        out.name("solutions");
+        if (!job.valid)
+            out.value("invalid");
+        else
+            out.value(job.solutions);
+        out.endObject();
+        line.write('\n');
+        writer.write(line.toString());
+    }
+
+    private static void writeGrid(JsonWriter out, int[][] grid) throws IOException {
+        if (grid == null) {
+            out.nullValue();
+            return;
+        }
+        out.beginArray();
+        for (int[] row : grid) {
+            out.beginArray();
+            for (int val : row)
+                out.value(val);
+            out.endArray();
+        }
+        out.endArray();
+    }
+
+    private static String digits(int[][] grid) {
+        StringBuilder sb = new StringBuilder(81);
+        for (int[] row : grid)
+            for (int val : row)
+                sb.append((char) ('0' + val));
+        return sb.toString();
+    }
+}
@@ -0,0 +1,60 @@
+package com.rarid.sudoku.generator;
+
+// Set of 128-bit canonical keys stored flat in two long arrays with open
+// addressing, so a key costs 16 bytes (32 at the worst load factor) instead of
+// the few hundred bytes of a String in a HashSet.
+final class CanonicalKeySet {
+    private long[] hi;
+    private long[] lo;
+    private int size;
+
+    CanonicalKeySet(int expected) {
+        int capacity = 16;
+        while (capacity < expected * 2)
+            capacity <<= 1;
+        hi = new long[capacity];
+        lo = new long[capacity];
+    }
+
+    // Returns false when the key was already present
+    synchronized boolean add(long[] key) {
+        long h = key[0], l = key[1];
+        // The all-zero key marks an empty slot
+        if (h == 0 && l == 0)
+            l = 1;
+        if (!insert(hi, lo, h, l))
+            return false;
+        if (++size * 2 > hi.length)
+            grow();
+        return true;
+    }
+
+    synchronized int size() {
+        return size;
+    }
+
+    private void grow() {
+        long[] newHi = new long[hi.length * 2];
+        long[] newLo = new long[lo.length * 2];
+        for (int i = 0; i < hi.length; i++) {
+            if (hi[i] != 0 || lo[i] != 0)
+                insert(newHi, newLo, hi[i], lo[i]);
+        }
+        hi = newHi;
+        lo = newLo;
+    }
+
+    private static boolean insert(long[] hi, long[] lo, long h, long l) {
+        int mask = hi.length - 1;
+        // The keys are already well mixed hashes, any bits make a good index
+        for (int i = (int) h & mask;; i = (i + 1) & mask) {
+            if (hi[i] == 0 && lo[i] == 0) {
+                hi[i] = h;
+                lo[i] = l;
+                return true;
+            }
+            if (hi[i] == h && lo[i] == l)
+                return false;
+        }
+    }
+}
@@ -0,0 +1,231 @@
+package com.rarid.sudoku.generator;
+
+import java.util.Arrays;
+
+// Maps a puzzle to its canonical form under the Sudoku symmetry group:
+// transposition, band and stack swaps, row swaps inside a band, column swaps
+// inside a stack and digit relabeling. Two puzzles are isomorphic exactly when
+// their canonical forms are equal.
+//
+// The canonical form is the lexicographically smallest row-major reading of
+// all transforms, with blanks as 0 and digits relabeled 1, 2, 3... in order of
+// first appearance. Rather than trying all 3,359,232 transforms, the search
+// builds the result one row at a time: for every source row that may come
+// next it tries the column orders still tied for the smallest prefix, keeps
+// only those that give the smallest next row and drops every branch that
+// already reads larger than the best form found so far.
+//
+// Not thread safe, every worker needs its own instance.
+final class Canonicalizer {
+    // All 1296 orders of 9 lines that keep bands (or stacks) together
+    private static final int[][] LINE_PERMS = new int[1296][];
+
+    static {
+        int[][] threes = { { 0, 1, 2 }, { 0, 2, 1 }, { 1, 0, 2 }, { 1, 2, 0 }, { 2, 0, 1 }, { 2, 1, 0 } };
+        int n = 0;
+        for (int[] bands : threes)
+            for (int[] a : threes)
+                for (int[] b : threes)
+                    for (int[] c : threes) {
+                        int[][] inner = { a, b, c };
+                        int[] perm = new int[9];
+                        for (int i = 0; i < 9; i++)
+                            perm[i] = bands[i / 3] * 3 + inner[i / 3][i % 3];
+                        LINE_PERMS[n++] = perm;
+                    }
+    }
+
+    private final int[][] grids = new int[2][81];
+    private final int[] best = new int[81];
+    // Rows of best that belong to the current search path
+    private int bestRows;
+
+    private final int[] sourceRows = new int[9];
+    // ties[d] holds the column orders still tied when choosing row d
+    private final int[][] ties = new int[10][1296];
+    private final int[] row = new int[9];
+    private final int[] minRow = new int[9];
+    private final int[] labels = new int[10];
+    private final int[] firstRows = new int[10];
+    private int[] grid;
+
+    // Returns the canonical form, valid until the next call
+    int[] canonicalForm(int[][] puzzle) {
+        for (int r = 0; r < 9; r++) {
+            for (int c = 0; c < 9; c++) {
+                grids[0][r * 9 + c] = puzzle[r][c];
+                grids[1][c * 9 + r] = puzzle[r][c];
+            }
+        }
+        for (int p = 0; p < 1296; p++)
+            ties[0][p] = p;
+        bestRows = 0;
+        for (int t = 0; t < 2; t++) {
+            grid = grids[t];
+            search(0, 0, 1296);
+        }
+        return best;
+    }
+
+    // Packs the canonical form into a 128-bit key, written to out[0] and
+    // out[1]. The form needs 269 bits, so the key is a pair of independent
+    // 64-bit hashes of it. A collision among a million puzzles has a
+    // probability of about 2^-88.
+    void key(int[][] puzzle, long[] out) {
+        int[] form = canonicalForm(puzzle);
+        long h1 = 0xcbf29ce484222325L;
+        long h2 = 0x9e3779b97f4a7c15L;
+        for (int v : form) {
+            h1 = (h1 ^ v) * 0x100000001b3L;
+            h2 = Long.rotateLeft(h2 ^ (v * 0xff51afd7ed558ccdL), 31) * 0xc4ceb9fe1a85ec53L;
+        }
+        out[0] = mix(h1);
+        out[1] = mix(h2 ^ h1);
+    }
+
+    // Chooses result row `depth` given the source rows already used and the
+    // column orders still tied for the smallest prefix
+    private void search(int depth, int used, int tieCount) {
+        if (depth == 9)
+            return;
+
+        // Smallest next row over every allowed source row and column order
+        if (depth == 0) {
+            firstRowBounds();
+        } else {
+            boolean found = false;
+            for (int source = 0; source < 9; source++) {
+                if (!allowed(depth, used, source))
+                    continue;
+                for (int k = 0; k < tieCount; k++) {
+                    int[] cols = LINE_PERMS[ties[depth][k]];
+                    if (buildRow(depth, source, cols, found ? minRow : null, 0) < 0) {
+                        System.arraycopy(row, 0, minRow, 0, 9);
+                        found = true;
+                    }
+                }
+            }
+        }
+
+        if (depth < bestRows) {
+            int cmp = compareBest(minRow, depth);
+            if (cmp > 0)
+                return;
+            if (cmp < 0)
+                bestRows = depth;
+        }
+        if (depth >= bestRows) {
+            System.arraycopy(minRow, 0, best, depth * 9, 9);
+            bestRows = depth + 1;
+        }
+
+        // Descend into every source row that reaches the smallest row, keeping
+        // only the column orders that reach it. Deeper rows never change row
+        // `depth` of best, so it still holds the smallest row here.
+        for (int source = 0; source < 9; source++) {
+            if (!allowed(depth, used, source) || depth == 0 && firstRows[source] != firstRows[9])
+                continue;
+            int next = 0;
+            for (int k = 0; k < tieCount; k++) {
+                int p = ties[depth][k];
+                if (buildRow(depth, source, LINE_PERMS[p], best, depth * 9) == 0)
+                    ties[depth + 1][next++] = p;
+            }
+            if (next == 0)
+                continue;
+            sourceRows[depth] = source;
+            search(depth + 1, used | (1 << source), next);
+        }
+    }
+
+    // A first row always relabels its clues 1, 2, 3..., so only the blanks
+    // matter: the smallest reading puts the emptiest stacks first and the
+    // blanks of each stack before its clues. Records that reading for every
+    // source row as a mask of clue positions, the smallest in firstRows[9],
+    // and writes it to minRow.
+    private void firstRowBounds() {
+        firstRows[9] = Integer.MAX_VALUE;
+        for (int source = 0; source < 9; source++) {
+            int[] clues = new int[3];
+            for (int c = 0; c < 9; c++) {
+                if (grid[source * 9 + c] != 0)
+                    clues[c / 3]++;
+            }
+            Arrays.sort(clues);
+            int mask = 0;
+            for (int n : clues)
+                mask = (mask << 3) | ((1 << n) - 1);
+            firstRows[source] = mask;
+            firstRows[9] = Math.min(firstRows[9], mask);
+        }
+        int label = 0;
+        for (int c = 0; c < 9; c++)
+            minRow[c] = (firstRows[9] & (1 << (8 - c))) != 0 ? ++label : 0;
+    }
+
+    // Rows are taken a band at a time: the first row of a band may come from
+    // any unused band, the others from the band already started
+    private boolean allowed(int depth, int used, int source) {
+        if ((used & (1 << source)) != 0)
+            return false;
+        if (depth % 3 == 0)
+            return true;
+        return source / 3 == sourceRows[depth - depth % 3] / 3;
+    }
+
+    // Relabels the path so far, writes result row `depth` into row and
+    // compares it with target[offset..]. Stops early once the row reads
+    // larger, leaving the rest of row unset. A null target counts as larger
+    // than any row.
+    private int buildRow(int depth, int source, int[] cols, int[] target, int offset) {
+        clearLabels();
+        int next = 0;
+        for (int d = 0; d < depth; d++) {
+            int base = sourceRows[d] * 9;
+            for (int c = 0; c < 9; c++) {
+                int v = grid[base + cols[c]];
+                if (v != 0 && labels[v] == 0)
+                    labels[v] = ++next;
+            }
+        }
+        int cmp = target == null ? -1 : 0;
+        int base = source * 9;
+        for (int c = 0; c < 9; c++) {
+            int v = grid[base + cols[c]];
+            if (v != 0) {
+                if (labels[v] == 0)
+                    labels[v] = ++next;
+                v = labels[v];
+            }
+            row[c] = v;
+            if (cmp == 0 && v != target[offset + c]) {
+                if (v > target[offset + c])
+                    return 1;
+                cmp = -1;
+            }
+        }
+        return cmp;
+    }
+
+    private int compareBest(int[] r, int depth) {
+        for (int i = 0; i < 9; i++) {
+            if (r[i] != best[depth * 9 + i])
+                return r[i] < best[depth * 9 + i] ? -1 : 1;
+        }
+        return 0;
+    }
+
+    private void clearLabels() {
+        for (int i = 0; i < 10; i++)
+            labels[i] = 0;
+    }
+
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,188 @@
+package com.rarid.sudoku.generator;
+
+// Removes clues from a full solution one at a time while keeping the puzzle
+// uniquely solvable. The occupancy masks are updated in place between
+// removals instead of reloading the board, and a removal is tested by asking
+// only whether the emptied cell can take a different digit: the puzzle stays
+// unique exactly when no solution exists with the removed digit forbidden
+// there. That search stops at the first solution and branches on the cell
+// with the fewest candidates.
+//
+// Removing clues only ever adds solutions, so a cell whose removal failed once
+// stays essential for good and is never searched again.
+final class ClueRemover {
+    // The nine cells of the row, column and box of every cell
+    private static final int[][] ROW_UNIT = new int[81][9];
+    private static final int[][] COL_UNIT = new int[81][9];
+    private static final int[][] BOX_UNIT = new int[81][9];
+
+    static {
+        for (int i = 0; i < 81; i++) {
+            int r = BitboardSolver.ROW[i], c = BitboardSolver.COL[i], b = BitboardSolver.BOX[i];
+            for (int k = 0; k < 9; k++) {
+                ROW_UNIT[i][k] = r * 9 + k;
+                COL_UNIT[i][k] = k * 9 + c;
+                BOX_UNIT[i][k] = ((b / 3) * 3 + k / 3) * 9 + (b % 3) * 3 + k % 3;
+            }
+        }
+    }
+
+    private final int[] cells = new int[81];
+    private final int[] rows = new int[9];
+    private final int[] cols = new int[9];
+    private final int[] boxes = new int[9];
+    private final boolean[] essential = new boolean[81];
+
+    // Cells emptied so far, the only ones the search has to fill
+    private final int[] empty = new int[81];
+    private int emptyCount;
+
+    // Work since the last reset, see GeneratorMetrics
+    private int tried;
+    private int reverted;
+    private long nodes;
+    private long backtracks;
+
+    ClueRemover() {
+    }
+
+    ClueRemover(int[][] solution) {
+        reset(solution);
+    }
+
+    // Starts over from another full solution, so one remover can serve a
+    // whole batch without allocating
+    void reset(int[][] solution) {
+        for (int i = 0; i < 9; i++) {
+            rows[i] = 0;
+            cols[i] = 0;
+            boxes[i] = 0;
+        }
+        for (int i = 0; i < 81; i++) {
+            essential[i] = false;
+            place(i, 1 << (solution[BitboardSolver.ROW[i]][BitboardSolver.COL[i]] - 1));
+        }
+        emptyCount = 0;
+        tried = 0;
+        reverted = 0;
+        nodes = 0;
+        backtracks = 0;
+    }
+
+    int clues() {
+        return 81 - emptyCount;
+    }
+
+    // Adds the work since the last reset to the metrics
+    void recordTo(GeneratorMetrics metrics, long nanos) {
+        metrics.recordRemoval(tried, reverted, nodes, backtracks, nanos);
+    }
+
+    // Empties the cell if the puzzle stays unique, otherwise keeps the clue
+    // and returns false
+    boolean tryRemove(int pos) {
+        if (cells[pos] == 0)
+            return true;
+        if (essential[pos])
+            return false;
+
+        tried++;
+        int bit = 1 << (cells[pos] - 1);
+        remove(pos, bit);
+        // When no other empty cell of the row, column or box can take the
+        // digit it is forced back into pos and there is nothing to search
+        int free = onlyPlace(pos, bit) ? 0 : candidates(pos) & ~bit;
+        while (free != 0) {
+            int other = free & -free;
+            free ^= other;
+            place(pos, other);
+            boolean solvable = solve(0);
+            remove(pos, other);
+            if (solvable) {
+                place(pos, bit);
+                essential[pos] = true;
+                reverted++;
+                return false;
+            }
+        }
+        empty[emptyCount++] = pos;
+        return true;
+    }
+
+    void store(int[][] puzzle) {
+        for (int i = 0; i < 81; i++)
+            puzzle[BitboardSolver.ROW[i]][BitboardSolver.COL[i]] = cells[i];
+    }
+
+    // True when the empty cells from empty[depth] on can be completed, leaves
+    // the board unchanged. The cell filled at each level is swapped to the
+    // front, so deeper levels only scan the cells still open.
+    private boolean solve(int depth) {
+        if (depth == emptyCount)
+            return true;
+
+        int best = depth;
+        int free = 0;
+        int fewest = 10;
+        for (int k = depth; k < emptyCount; k++) {
+            int c = candidates(empty[k]);
+            int n = Integer.bitCount(c);
+            if (n < fewest) {
+                if (n == 0)
+                    return false;
+                best = k;
+                free = c;
+                fewest = n;
+                if (n == 1)
+                    break;
+            }
+        }
+        int pos = empty[best];
+        empty[best] = empty[depth];
+        empty[depth] = pos;
+
+        while (free != 0) {
+            int bit = free & -free;
+            free ^= bit;
+            place(pos, bit);
+            nodes++;
+            boolean solved = solve(depth + 1);
+            remove(pos, bit);
+            if (solved)
+                return true;
+            backtracks++;
+        }
+        return false;
+    }
+
+    private boolean onlyPlace(int pos, int bit) {
+        return onlyPlace(pos, bit, ROW_UNIT) || onlyPlace(pos, bit, COL_UNIT) || onlyPlace(pos, bit, BOX_UNIT);
+    }
+
+    private boolean onlyPlace(int pos, int bit, int[][] units) {
+        for (int i : units[pos]) {
+            if (i != pos && cells[i] == 0 && (candidates(i) & bit) != 0)
+                return false;
+        }
+        return true;
+    }
+
+    private int candidates(int pos) {
+        return ~(rows[BitboardSolver.ROW[pos]] | cols[BitboardSolver.COL[pos]] | boxes[BitboardSolver.BOX[pos]])
+                & BitboardSolver.ALL;
+    }
+
+    private void place(int pos, int bit) {
+        cells[pos] = Integer.numberOfTrailingZeros(bit) + 1;
+        rows[BitboardSolver.ROW[pos]] |= bit;
+        cols[BitboardSolver.COL[pos]] |= bit;
+        boxes[BitboardSolver.BOX[pos]] |= bit;
+    }
+
+    private void remove(int pos, int bit) {
+        cells[pos] = 0;
+        rows[BitboardSolver.ROW[pos]] &= ~bit;
+        cols[BitboardSolver.COL[pos]] &= ~bit;
+        boxes[BitboardSolver.BOX[pos]] &= ~bit;
+    }
+}
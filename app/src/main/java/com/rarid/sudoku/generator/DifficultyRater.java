@@ -0,0 +1,352 @@
+package com.rarid.sudoku.generator;
+
+import java.util.Random;
+
+// Rates a puzzle by solving it the way a person would and reporting the
+// hardest technique that was needed. Candidates are kept as one 9-bit mask
+// per cell and updated incrementally when a digit is placed, so a full
+// rating takes microseconds.
+public final class DifficultyRater {
+    public static final int SINGLES = 1; // naked and hidden singles
+    public static final int LOCKED_CANDIDATES = 2; // pointing and claiming
+    public static final int PAIRS = 3; // naked and hidden pairs
+    public static final int X_WING = 4;
+    public static final int NEEDS_SEARCH = 5; // none of the above make progress
+
+    private static final int[][] UNITS = Units.UNITS;
+    private static final int[][] PEERS = new int[81][20];
+    private static final boolean[][] IN_UNIT = new boolean[27][81];
+
+    static {
+        for (int u = 0; u < 27; u++)
+            for (int cell : UNITS[u])
+                IN_UNIT[u][cell] = true;
+        for (int cell = 0; cell < 81; cell++) {
+            int n = 0;
+            for (int other = 0; other < 81; other++) {
+                if (other != cell && (BitboardSolver.ROW[other] == BitboardSolver.ROW[cell]
+                        || BitboardSolver.COL[other] == BitboardSolver.COL[cell]
+                        || BitboardSolver.BOX[other] == BitboardSolver.BOX[cell]))
+                    PEERS[cell][n++] = other;
+            }
+        }
+    }
+
+    private final int[] cells = new int[81];
+    private final int[] candidates = new int[81];
+    private int empty;
+    private boolean contradiction;
+
+    // Digit bit of the known solution per cell, or null. Every elimination
+    // and placement is checked against it, a sound technique never touches
+    // the solution.
+    private int[] expected;
+    private final int[] solutionBits = new int[81];
+
+    // Positions of a digit per unit or line, reused by hiddenPair and xWing
+    private final int[] where = new int[9];
+
+    // Returns the hardest technique needed, NEEDS_SEARCH when the techniques
+    // run out before the puzzle is solved
+    public int rate(int[][] puzzle) {
+        expected = null;
+        return rateLoaded(puzzle);
+    }
+
+    // Same rating, checked against the puzzle's known solution. Throws
+    // IllegalStateException when a technique removes a solution digit.
+    public int rate(int[][] puzzle, int[][] solution) {
+        for (int i = 0; i < 81; i++)
+            solutionBits[i] = 1 << (solution[i / 9][i % 9] - 1);
+        expected = solutionBits;
+        try {
+            return rateLoaded(puzzle);
+        } finally {
+            expected = null;
+        }
+    }
+
+    private int rateLoaded(int[][] puzzle) {
+        load(puzzle);
+        int hardest = 0;
+        while (empty > 0 && !contradiction) {
+            if (nakedSingle() || hiddenSingle()) {
+                hardest = Math.max(hardest, SINGLES);
+            } else if (lockedCandidates()) {
+                hardest = Math.max(hardest, LOCKED_CANDIDATES);
+            } else if (nakedPair() || hiddenPair()) {
+                hardest = Math.max(hardest, PAIRS);
+            } else if (xWing()) {
+                hardest = Math.max(hardest, X_WING);
+            } else {
+                return NEEDS_SEARCH;
+            }
+        }
+        return contradiction ? NEEDS_SEARCH : hardest;
+    }
+
+    // Rates random minimal puzzles against their solutions and prints how
+    // many needed each technique. Exits with status 1 if a technique removed
+    // a solution digit.
+    public static void main(String[] args) {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+        Random random = new Random(args.length > 1 ? Long.parseLong(args[1]) : 1);
+        DifficultyRater rater = new DifficultyRater();
+        ClueRemover remover = new ClueRemover();
+        int[][] puzzle = new int[9][9];
+        int[] order = new int[81];
+        int[] ratings = new int[NEEDS_SEARCH + 1];
+        for (int i = 0; i < count; i++) {
+            int[][] solution = SudokuGenerator.generateFullSolution(random);
+            remover.reset(solution);
+            for (int k = 0; k < 81; k++)
+                order[k] = k;
+            for (int k = 80; k > 0; k--) {
+                int j = random.nextInt(k + 1);
+                int tmp = order[k];
+                order[k] = order[j];
+                order[j] = tmp;
+            }
+            for (int cell : order)
+                remover.tryRemove(cell);
+            remover.store(puzzle);
+            try {
+                ratings[rater.rate(puzzle, solution)]++;
+            } catch (IllegalStateException e) {
+                System.out.println("Puzzle " + i + ": " + e.getMessage());
+                System.exit(1);
+            }
+        }
+        for (int r = 0; r <= NEEDS_SEARCH; r++)
+            System.out.printf("rating %d: %d%n", r, ratings[r]);
+        System.out.println("All eliminations kept the solution on " + count + " puzzles");
+    }
+
+    // Easiest rating a puzzle of the given difficulty may have, so the
+    // difficulties take disjoint ranges of ratings
+    public static int minRating(String difficulty) {
+        switch (difficulty) {
+            case "easy":
+                return SINGLES;
+            case "medium":
+                return LOCKED_CANDIDATES;
+            case "hard":
+                return X_WING;
+            default:
+                return 0;
+        }
+    }
+
+    // Hardest technique a puzzle of the given difficulty may need
+    public static int maxRating(String difficulty) {
+        switch (difficulty) {
+            case "easy":
+                return SINGLES;
+            case "medium":
+                return PAIRS;
+            default:
+                return NEEDS_SEARCH;
+        }
+    }
+
+    private void load(int[][] puzzle) {
+        empty = 81;
+        contradiction = false;
+        for (int i = 0; i < 81; i++) {
+            cells[i] = 0;
+            candidates[i] = BitboardSolver.ALL;
+        }
+        for (int i = 0; i < 81; i++) {
+            int val = puzzle[i / 9][i % 9];
+            if (val != 0)
+                place(i, val);
+        }
+    }
+
+    private void place(int cell, int digit) {
+        int bit = 1 << (digit - 1);
+        if (expected != null && expected[cell] != bit)
+            throw new IllegalStateException("Placed " + digit + " in cell " + cell + " against the solution");
+        cells[cell] = digit;
+        candidates[cell] = 0;
+        empty--;
+        for (int peer : PEERS[cell]) {
+            if (cells[peer] == 0 && (candidates[peer] &= ~bit) == 0)
+                contradiction = true;
+        }
+    }
+
+    private boolean eliminate(int cell, int mask) {
+        if (cells[cell] != 0 || (candidates[cell] & mask) == 0)
+            return false;
+        if (expected != null && (expected[cell] & mask) != 0)
+            throw new IllegalStateException("Eliminated the solution digit of cell " + cell);
+        if ((candidates[cell] &= ~mask) == 0)
+            contradiction = true;
+        return true;
+    }
+
+    private boolean nakedSingle() {
+        for (int i = 0; i < 81; i++) {
+            int c = candidates[i];
+            if (cells[i] == 0 && c != 0 && (c & (c - 1)) == 0) {
+                place(i, Integer.numberOfTrailingZeros(c) + 1);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean hiddenSingle() {
+        for (int[] unit : UNITS) {
+            // Digits seen once and digits seen more than once in the unit
+            int once = 0, more = 0;
+            for (int cell : unit) {
+                more |= once & candidates[cell];
+                once |= candidates[cell];
+            }
+            int single = once & ~more;
+            if (single == 0)
+                continue;
+            int bit = single & -single;
+            for (int cell : unit) {
+                if ((candidates[cell] & bit) != 0) {
+                    place(cell, Integer.numberOfTrailingZeros(bit) + 1);
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    // A digit confined to one line inside a box can be removed from the rest
+    // of that line (pointing), and a digit confined to one box inside a line
+    // can be removed from the rest of that box (claiming)
+    private boolean lockedCandidates() {
+        boolean progress = false;
+        for (int box = 18; box < 27; box++) {
+            for (int line = 0; line < 18; line++) {
+                if (!IN_UNIT[line][UNITS[box][0]] && !IN_UNIT[line][UNITS[box][4]]
+                        && !IN_UNIT[line][UNITS[box][8]])
+                    continue;
+                int inside = 0, boxRest = 0, lineRest = 0;
+                for (int cell : UNITS[box]) {
+                    if (IN_UNIT[line][cell])
+                        inside |= candidates[cell];
+                    else
+                        boxRest |= candidates[cell];
+                }
+                for (int cell : UNITS[line]) {
+                    if (!IN_UNIT[box][cell])
+                        lineRest |= candidates[cell];
+                }
+                int pointing = inside & ~boxRest & lineRest;
+                int claiming = inside & ~lineRest & boxRest;
+                for (int cell : UNITS[line]) {
+                    if (pointing != 0 && !IN_UNIT[box][cell])
+                        progress |= eliminate(cell, pointing);
+                }
+                for (int cell : UNITS[box]) {
+                    if (claiming != 0 && !IN_UNIT[line][cell])
+                        progress |= eliminate(cell, claiming);
+                }
+                if (progress)
+                    return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean nakedPair() {
+        for (int[] unit : UNITS) {
+            for (int a = 0; a < 9; a++) {
+                int mask = candidates[unit[a]];
+                if (Integer.bitCount(mask) != 2)
+                    continue;
+                for (int b = a + 1; b < 9; b++) {
+                    if (candidates[unit[b]] != mask)
+                        continue;
+                    boolean progress = false;
+                    for (int k = 0; k < 9; k++) {
+                        if (k != a && k != b)
+                            progress |= eliminate(unit[k], mask);
+                    }
+                    if (progress)
+                        return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private boolean hiddenPair() {
+        for (int[] unit : UNITS) {
+            // Positions of every digit inside the unit as a 9-bit mask
+            for (int d = 0; d < 9; d++)
+                where[d] = 0;
+            for (int k = 0; k < 9; k++) {
+                for (int d = 0; d < 9; d++) {
+                    if ((candidates[unit[k]] & (1 << d)) != 0)
+                        where[d] |= 1 << k;
+                }
+            }
+            for (int d1 = 0; d1 < 9; d1++) {
+                if (Integer.bitCount(where[d1]) != 2)
+                    continue;
+                for (int d2 = d1 + 1; d2 < 9; d2++) {
+                    if (where[d2] != where[d1])
+                        continue;
+                    int keep = (1 << d1) | (1 << d2);
+                    boolean progress = false;
+                    for (int k = 0; k < 9; k++) {
+                        if ((where[d1] & (1 << k)) != 0)
+                            progress |= eliminate(unit[k], ~keep & BitboardSolver.ALL);
+                    }
+                    if (progress)
+                        return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    // A digit limited to the same two columns in two rows can be removed from
+    // those columns everywhere else, and the same with rows and columns
+    // swapped
+    private boolean xWing() {
+        for (int d = 0; d < 9; d++) {
+            int bit = 1 << d;
+            for (int base = 0; base < 18; base += 9) {
+                // Rows are covered by columns and columns by rows
+                int cover = 9 - base;
+                for (int line = 0; line < 9; line++) {
+                    where[line] = 0;
+                    for (int k = 0; k < 9; k++) {
+                        if ((candidates[UNITS[base + line][k]] & bit) != 0)
+                            where[line] |= 1 << k;
+                    }
+                }
+                for (int l1 = 0; l1 < 9; l1++) {
+                    if (Integer.bitCount(where[l1]) != 2)
+                        continue;
+                    for (int l2 = l1 + 1; l2 < 9; l2++) {
+                        if (where[l2] != where[l1])
+                            continue;
+                        boolean progress = false;
+                        for (int k = 0; k < 9; k++) {
+                            if ((where[l1] & (1 << k)) == 0)
+                                continue;
+                            for (int other = 0; other < 9; other++) {
+                                if (other != l1 && other != l2)
+                                    progress |= eliminate(UNITS[cover + k][other], bit);
+                            }
+                        }
+                        if (progress)
+                            return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,205 @@
+package com.rarid.sudoku.generator;
+
+// Dancing Links (Algorithm X) solver. Sudoku is modelled as an exact cover
+// problem with 324 constraint columns (cell filled, digit in row, digit in
+// column, digit in box) and 729 candidate rows, one per cell and digit. The
+// column with the fewest remaining rows is always covered first, which keeps
+// the search size steady no matter where the clues are.
+final class DlxSolver {
+    private static final int COLUMNS = 324;
+    private static final int ROWS = 729;
+    private static final int NODES = 1 + COLUMNS + ROWS * 4;
+
+    // Links are stored in parallel arrays, node 0 is the root and nodes
+    // 1..324 are the column headers
+    private final int[] left = new int[NODES];
+    private final int[] right = new int[NODES];
+    private final int[] up = new int[NODES];
+    private final int[] down = new int[NODES];
+    private final int[] column = new int[NODES];
+    private final int[] rowOf = new int[NODES];
+    private final int[] size = new int[COLUMNS + 1];
+    private final int[] firstNode = new int[ROWS];
+    private final boolean[] covered = new boolean[COLUMNS + 1];
+
+    private final int[] chosen = new int[81];
+    private final int[] solution = new int[81];
+    private int depth;
+    private int clueCount;
+    private int found;
+    private int limit;
+
+    // Rows chosen and given up again by the last countSolutions call
+    private long nodes;
+    private long backtracks;
+
+    DlxSolver() {
+        build();
+    }
+
+    // Loads a board, returns false if the given digits already conflict. The
+    // clues of the previous board are uncovered first, so the link structure
+    // is only built once per solver.
+    boolean load(int[][] board) {
+        reset();
+        for (int r = 0; r < 9; r++) {
+            for (int c = 0; c < 9; c++) {
+                int val = board[r][c];
+                if (val == 0)
+                    continue;
+                int node = firstNode[(r * 9 + c) * 9 + val - 1];
+                int j = node;
+                do {
+                    if (covered[column[j]])
+                        return false;
+                    j = right[j];
+                } while (j != node);
+                j = node;
+                do {
+                    cover(column[j]);
+                    j = right[j];
+                } while (j != node);
+                chosen[clueCount++] = rowOf[node];
+            }
+        }
+        return true;
+    }
+
+    // Counts solutions of the loaded board, stopping as soon as limit is
+    // reached
+    int countSolutions(int limit) {
+        this.limit = limit;
+        found = 0;
+        nodes = 0;
+        backtracks = 0;
+        depth = clueCount;
+        search();
+        return found;
+    }
+
+    long nodes() {
+        return nodes;
+    }
+
+    long backtracks() {
+        return backtracks;
+    }
+
+    // Writes the first solution found by the last countSolutions call
+    void storeSolution(int[][] board) {
+        for (int i = 0; i < 81; i++) {
+            int row = solution[i];
+            board[row / 81][(row / 9) % 9] = row % 9 + 1;
+        }
+    }
+
+    private void search() {
+        if (right[0] == 0) {
+            if (found == 0)
+                System.arraycopy(chosen, 0, solution, 0, 81);
+            found++;
+            return;
+        }
+
+        int best = right[0];
+        for (int c = right[best]; c != 0; c = right[c]) {
+            if (size[c] < size[best]) {
+                best = c;
+                if (size[c] <= 1)
+                    break;
+            }
+        }
+        if (size[best] == 0)
+            return;
+
+        cover(best);
+        for (int r = down[best]; r != best && found < limit; r = down[r]) {
+            chosen[depth++] = rowOf[r];
+            nodes++;
+            for (int j = right[r]; j != r; j = right[j])
+                cover(column[j]);
+            search();
+            for (int j = left[r]; j != r; j = left[j])
+                uncover(column[j]);
+            depth--;
+            backtracks++;
+        }
+        uncover(best);
+    }
+
+    private void cover(int c) {
+        covered[c] = true;
+        right[left[c]] = right[c];
+        left[right[c]] = left[c];
+        for (int i = down[c]; i != c; i = down[i]) {
+            for (int j = right[i]; j != i; j = right[j]) {
+                down[up[j]] = down[j];
+                up[down[j]] = up[j];
+                size[column[j]]--;
+            }
+        }
+    }
+
+    private void uncover(int c) {
+        for (int i = up[c]; i != c; i = up[i]) {
+            for (int j = left[i]; j != i; j = left[j]) {
+                size[column[j]]++;
+                down[up[j]] = j;
+                up[down[j]] = j;
+            }
+        }
+        right[left[c]] = c;
+        left[right[c]] = c;
+        covered[c] = false;
+    }
+
+    // Uncovers the clues of the previous board in reverse order
+    private void reset() {
+        for (int k = clueCount - 1; k >= 0; k--) {
+            int node = firstNode[chosen[k]];
+            for (int j = left[node]; j != node; j = left[j])
+                uncover(column[j]);
+            uncover(column[node]);
+        }
+        clueCount = 0;
+    }
+
+    private void build() {
+        for (int c = 0; c <= COLUMNS; c++) {
+            left[c] = c == 0 ? COLUMNS : c - 1;
+            right[c] = c == COLUMNS ? 0 : c + 1;
+            up[c] = c;
+            down[c] = c;
+            column[c] = c;
+            size[c] = 0;
+            covered[c] = false;
+        }
+
+        int node = COLUMNS + 1;
+        for (int row = 0; row < ROWS; row++) {
+            int r = row / 81, c = (row / 9) % 9, d = row % 9;
+            int b = (r / 3) * 3 + c / 3;
+            int first = node;
+            firstNode[row] = first;
+            link(node++, row, 1 + r * 9 + c);
+            link(node++, row, 1 + 81 + r * 9 + d);
+            link(node++, row, 1 + 162 + c * 9 + d);
+            link(node++, row, 1 + 243 + b * 9 + d);
+            for (int k = 0; k < 4; k++) {
+                left[first + k] = first + (k + 3) % 4;
+                right[first + k] = first + (k + 1) % 4;
+            }
+        }
+    }
+
+    // Appends a node to the bottom of its column
+    private void link(int node, int row, int col) {
+        column[node] = col;
+        rowOf[node] = row;
+        up[node] = up[col];
+        down[node] = col;
+        down[up[col]] = node;
+        up[col] = node;
+        size[col]++;
+    }
+}
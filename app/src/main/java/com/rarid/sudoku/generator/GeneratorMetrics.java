@@ -0,0 +1,264 @@
+package com.rarid.sudoku.generator;
+
+import java.io.PrintStream;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+// Counters of the work the generator does, per phase: filling solution grids,
+// removing clues, counting solutions and rating puzzles. The solvers count
+// nodes and backtracks in plain fields of their own, and the totals are added
+// here once per phase, so the counters stay on in release builds at the cost
+// of a clock read and a few additions per phase.
+//
+// Every thread adds to its own instance, the only writer of its fields, so no
+// update needs a lock or an atomic. total() sums the instances of all threads;
+// while they are still generating the sum may lag behind by the phases in
+// progress. The counts of a thread that has ended are folded into one retired
+// total and its instance dropped, so short-lived workers do not pile up.
+// since() gives the work of one puzzle or one batch as the difference of two
+// snapshots.
+public final class GeneratorMetrics {
+    // Live threads and their instances, and what ended threads left behind.
+    // Both are guarded by the lock on THREADS.
+    private static final List<Registered> THREADS = new ArrayList<>();
+    private static final GeneratorMetrics RETIRED = new GeneratorMetrics();
+
+    private static final ThreadLocal<GeneratorMetrics> CURRENT = new ThreadLocal<GeneratorMetrics>() {
+        @Override
+        protected GeneratorMetrics initialValue() {
+            GeneratorMetrics metrics = new GeneratorMetrics();
+            synchronized (THREADS) {
+                retireEnded();
+                THREADS.add(new Registered(Thread.currentThread(), metrics));
+            }
+            return metrics;
+        }
+    };
+
+    // The thread is only weakly held, the registry must not keep it alive
+    private static final class Registered {
+        final WeakReference<Thread> thread;
+        final GeneratorMetrics metrics;
+
+        Registered(Thread thread, GeneratorMetrics metrics) {
+            this.thread = new WeakReference<>(thread);
+            this.metrics = metrics;
+        }
+
+        boolean ended() {
+            Thread t = thread.get();
+            return t == null || !t.isAlive();
+        }
+    }
+
+    private volatile long fills;
+    private volatile long fillNodes;
+    private volatile long fillBacktracks;
+    private volatile long fillNanos;
+    private volatile long removals;
+    private volatile long removalNodes;
+    private volatile long removalBacktracks;
+    private volatile long revertedRemovals;
+    private volatile long removeNanos;
+    private volatile long uniquenessChecks;
+    private volatile long solutionCounts;
+    private volatile long checkNodes;
+    private volatile long checkBacktracks;
+    private volatile long checkPropagations;
+    private volatile long checkNanos;
+    private volatile long ratings;
+    private volatile long rateNanos;
+
+    private GeneratorMetrics() {
+    }
+
+    // The live counters of the calling thread
+    public static GeneratorMetrics current() {
+        return CURRENT.get();
+    }
+
+    // Sum over every thread that ever generated
+    public static GeneratorMetrics total() {
+        GeneratorMetrics sum = new GeneratorMetrics();
+        synchronized (THREADS) {
+            retireEnded();
+            sum.add(RETIRED, 1);
+            for (Registered registered : THREADS)
+                sum.add(registered.metrics, 1);
+        }
+        return sum;
+    }
+
+    // An ended thread no longer writes its counters, so they can be read
+    // once more and added to RETIRED. Called with the lock on THREADS held.
+    private static void retireEnded() {
+        for (Iterator<Registered> it = THREADS.iterator(); it.hasNext();) {
+            Registered registered = it.next();
+            if (registered.ended()) {
+                RETIRED.add(registered.metrics, 1);
+                it.remove();
+            }
+        }
+    }
+
+    // A copy that no longer changes
+    public GeneratorMetrics snapshot() {
+        GeneratorMetrics copy = new GeneratorMetrics();
+        copy.add(this, 1);
+        return copy;
+    }
+
+    // The work done between an earlier snapshot and this one
+    public GeneratorMetrics since(GeneratorMetrics earlier) {
+        GeneratorMetrics diff = snapshot();
+        diff.add(earlier, -1);
+        return diff;
+    }
+
+    // Only ever called by the owning thread, on a private copy or on RETIRED
+    private void add(GeneratorMetrics other, int sign) {
+        fills += sign * other.fills;
+        fillNodes += sign * other.fillNodes;
+        fillBacktracks += sign * other.fillBacktracks;
+        fillNanos += sign * other.fillNanos;
+        removals += sign * other.removals;
+        removalNodes += sign * other.removalNodes;
+        removalBacktracks += sign * other.removalBacktracks;
+        revertedRemovals += sign * other.revertedRemovals;
+        removeNanos += sign * other.removeNanos;
+        uniquenessChecks += sign * other.uniquenessChecks;
+        solutionCounts += sign * other.solutionCounts;
+        checkNodes += sign * other.checkNodes;
+        checkBacktracks += sign * other.checkBacktracks;
+        checkPropagations += sign * other.checkPropagations;
+        checkNanos += sign * other.checkNanos;
+        ratings += sign * other.ratings;
+        rateNanos += sign * other.rateNanos;
+    }
+
+    void recordFill(long nodes, long backtracks, long nanos) {
+        fills++;
+        fillNodes += nodes;
+        fillBacktracks += backtracks;
+        fillNanos += nanos;
+    }
+
+    // One puzzle's clue removal. Every removal tried is a uniqueness check,
+    // reverted ones found a second solution and put the clue back.
+    void recordRemoval(int tried, int reverted, long nodes, long backtracks, long nanos) {
+        removals++;
+        uniquenessChecks += tried;
+        revertedRemovals += reverted;
+        removalNodes += nodes;
+        removalBacktracks += backtracks;
+        removeNanos += nanos;
+    }
+
+    // One solution count of a whole puzzle, added by the engines themselves
+    void recordCheck(long nodes, long backtracks, long nanos) {
+        recordCheck(nodes, backtracks, 0, nanos);
+    }
+
+    // Same for an engine that also places digits by deduction, nodes are
+    // then only its guesses
+    void recordCheck(long nodes, long backtracks, long propagations, long nanos) {
+        uniquenessChecks++;
+        solutionCounts++;
+        checkNodes += nodes;
+        checkBacktracks += backtracks;
+        checkPropagations += propagations;
+        checkNanos += nanos;
+    }
+
+    void recordRating(long nanos) {
+        ratings++;
+        rateNanos += nanos;
+    }
+
+    public long fills() {
+        return fills;
+    }
+
+    public long removals() {
+        return removals;
+    }
+
+    public long ratings() {
+        return ratings;
+    }
+
+    // Digits placed by the fill, removal and counting searches
+    public long nodes() {
+        return fillNodes + removalNodes + checkNodes;
+    }
+
+    public long backtracks() {
+        return fillBacktracks + removalBacktracks + checkBacktracks;
+    }
+
+    // Digits the solution counts placed by deduction rather than search
+    public long propagations() {
+        return checkPropagations;
+    }
+
+    // Removals tested plus separate solution counts
+    public long uniquenessChecks() {
+        return uniquenessChecks;
+    }
+
+    // The uniqueness checks that counted solutions of a whole puzzle
+    public long solutionCounts() {
+        return solutionCounts;
+    }
+
+    public long revertedRemovals() {
+        return revertedRemovals;
+    }
+
+    public long fillNanos() {
+        return fillNanos;
+    }
+
+    public long removeNanos() {
+        return removeNanos;
+    }
+
+    public long checkNanos() {
+        return checkNanos;
+    }
+
+    public long rateNanos() {
+        return rateNanos;
+    }
+
+    // Indented lines for the CLI reports
+    public void print(PrintStream out) {
+        for (String line : lines())
+            out.println("  " + line);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        for (String line : lines()) {
+            if (sb.length() > 0)
+                sb.append('\n');
+            sb.append(line);
+        }
+        return sb.toString();
+    }
+
+    private String[] lines() {
+        return new String[] {
+                String.format("fill:   %d grids, %d nodes, %d backtracks, %.1f ms", fills, fillNodes,
+                        fillBacktracks, fillNanos / 1e6),
+                String.format("remove: %d puzzles, %d nodes, %d backtracks, %d removals reverted, %.1f ms",
+                        removals, removalNodes, removalBacktracks, revertedRemovals, removeNanos / 1e6),
+                String.format("checks: %d uniqueness checks, %d of them solution counts with %d nodes, %d backtracks,"
+                        + " %d propagations, %.1f ms", uniquenessChecks, solutionCounts, checkNodes, checkBacktracks,
+                        checkPropagations, checkNanos / 1e6),
+                String.format("rate:   %d ratings, %.1f ms", ratings, rateNanos / 1e6) };
+    }
+}
@@ -0,0 +1,69 @@
+package com.rarid.sudoku.generator;
+
+// Fixed-size histogram of durations in nanoseconds with about 3% precision.
+// Every power of two is split into 32 linear buckets, so a batch of any size
+// needs the same 15 KB per histogram and percentiles come from a bucket scan.
+//
+// Not thread safe, every worker records into its own histogram and they are
+// merged for the report.
+final class LatencyHistogram {
+    private static final int SUB_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+
+    private final long[] counts = new long[(64 - SUB_BITS + 1) * SUB_BUCKETS];
+    private long total;
+    private long max;
+
+    void record(long nanos) {
+        if (nanos < 0)
+            nanos = 0;
+        counts[index(nanos)]++;
+        total++;
+        max = Math.max(max, nanos);
+    }
+
+    void add(LatencyHistogram other) {
+        for (int i = 0; i < counts.length; i++)
+            counts[i] += other.counts[i];
+        total += other.total;
+        max = Math.max(max, other.max);
+    }
+
+    long count() {
+        return total;
+    }
+
+    long max() {
+        return max;
+    }
+
+    // Upper bound of the bucket holding the given percentile (0-100)
+    long percentile(double percent) {
+        if (total == 0)
+            return 0;
+        long rank = (long) Math.ceil(total * percent / 100.0);
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank && counts[i] > 0)
+                return Math.min(upperBound(i), max);
+        }
+        return max;
+    }
+
+    private static int index(long value) {
+        if (value < SUB_BUCKETS)
+            return (int) value;
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int sub = (int) (value >>> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BITS + 1) * SUB_BUCKETS + sub;
+    }
+
+    private static long upperBound(int index) {
+        if (index < SUB_BUCKETS)
+            return index;
+        int exponent = index / SUB_BUCKETS + SUB_BITS - 1;
+        long sub = index % SUB_BUCKETS;
+        return ((SUB_BUCKETS + sub + 1) << (exponent - SUB_BITS)) - 1;
+    }
+}
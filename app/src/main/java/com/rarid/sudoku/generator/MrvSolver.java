@@ -0,0 +1,134 @@
+package com.rarid.sudoku.generator;
+
+// Deterministic 9x9 solver: it always branches on the empty cell with the
+// fewest candidates and tries digits in increasing order, so the same puzzle
+// gives the same answer every time and the running time no longer depends on
+// a random candidate order. For a puzzle with several solutions that answer
+// is the first one in this order.
+//
+// nodes() counts digits placed by the search and backtracks() the ones taken
+// back again, both for the last solve or countSolutions call.
+final class MrvSolver {
+    private final int[] cells = new int[81];
+    private final int[] rows = new int[9];
+    private final int[] cols = new int[9];
+    private final int[] boxes = new int[9];
+
+    // Cells still to fill, the one filled at each depth is swapped to the
+    // front so deeper levels only scan the cells still open
+    private final int[] empty = new int[81];
+    private int emptyCount;
+
+    private long nodes;
+    private long backtracks;
+
+    // Loads a board, returns false if the given digits already conflict
+    boolean load(int[][] board) {
+        for (int i = 0; i < 9; i++) {
+            rows[i] = 0;
+            cols[i] = 0;
+            boxes[i] = 0;
+        }
+        emptyCount = 0;
+        for (int i = 0; i < 81; i++) {
+            cells[i] = 0;
+            int val = board[BitboardSolver.ROW[i]][BitboardSolver.COL[i]];
+            if (val == 0) {
+                empty[emptyCount++] = i;
+                continue;
+            }
+            int bit = 1 << (val - 1);
+            if ((used(i) & bit) != 0)
+                return false;
+            place(i, bit);
+        }
+        return true;
+    }
+
+    void store(int[][] board) {
+        for (int i = 0; i < 81; i++)
+            board[BitboardSolver.ROW[i]][BitboardSolver.COL[i]] = cells[i];
+    }
+
+    // Fills the empty cells with the first solution, returns false and leaves
+    // the board unchanged when there is none
+    boolean solve() {
+        nodes = 0;
+        backtracks = 0;
+        return search(0, 1, true) == 1;
+    }
+
+    // Counts solutions up to limit, the board is left unchanged
+    int countSolutions(int limit) {
+        nodes = 0;
+        backtracks = 0;
+        return search(0, limit, false);
+    }
+
+    long nodes() {
+        return nodes;
+    }
+
+    long backtracks() {
+        return backtracks;
+    }
+
+    private int search(int depth, int limit, boolean keep) {
+        if (depth == emptyCount)
+            return 1;
+
+        int best = depth;
+        int free = 0;
+        int fewest = 10;
+        for (int k = depth; k < emptyCount; k++) {
+            int c = ~used(empty[k]) & BitboardSolver.ALL;
+            int n = Integer.bitCount(c);
+            if (n < fewest) {
+                if (n == 0)
+                    return 0;
+                best = k;
+                free = c;
+                fewest = n;
+                if (n == 1)
+                    break;
+            }
+        }
+        int pos = empty[best];
+        empty[best] = empty[depth];
+        empty[depth] = pos;
+
+        int found = 0;
+        while (free != 0) {
+            int bit = free & -free;
+            free ^= bit;
+            place(pos, bit);
+            nodes++;
+            found += search(depth + 1, limit - found, keep);
+            if (keep && found > 0)
+                return found;
+            remove(pos, bit);
+            backtracks++;
+            if (found >= limit)
+                return found;
+        }
+        return found;
+    }
+
+    private int used(int pos) {
+        return rows[BitboardSolver.ROW[pos]] | cols[BitboardSolver.COL[pos]] | boxes[BitboardSolver.BOX[pos]];
+    }
+
+    private void place(int pos, int bit) {
+        cells[pos] = Integer.numberOfTrailingZeros(bit) + 1;
+        rows[BitboardSolver.ROW[pos]] |= bit;
+        cols[BitboardSolver.COL[pos]] |= bit;
+        boxes[BitboardSolver.BOX[pos]] |= bit;
+    }
+
+    private void remove(int pos, int bit) {
+        cells[pos] = 0;
+        rows[BitboardSolver.ROW[pos]] &= ~bit;
+        cols[BitboardSolver.COL[pos]] &= ~bit;
+        boxes[BitboardSolver.BOX[pos]] &= ~bit;
+    }
+}
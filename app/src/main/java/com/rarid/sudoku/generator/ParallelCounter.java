@@ -0,0 +1,161 @@
+package com.rarid.sudoku.generator;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+// Counts solutions on all cores with fork-join, for the uniqueness checks
+// that take seconds on one thread: sparse hard puzzles and 16x16 or 25x25
+// boards. The calling thread first searches alone with a node budget, so a
+// puzzle that is quick to check pays nothing for the parallel machinery.
+// Only when that budget runs out is the tree split: starting from the empty
+// cell with the fewest candidates, every branch point becomes one subtask per
+// candidate until there are about SPLIT_FACTOR tasks per core, and those
+// count their subtree with a plain sequential search. Cells with a single
+// candidate are filled in on the way down without a task of their own.
+//
+// All tasks share the number of solutions found. Once it reaches the limit
+// a stop flag makes every running search give up. Their nodes and
+// backtracks are summed up and recorded as one check in the calling
+// thread's metrics.
+final class ParallelCounter {
+    // Nodes searched on the calling thread before the tree is split, about
+    // a millisecond of work
+    static final long SEQUENTIAL_NODES = 1 << 14;
+
+    // Tasks per core, enough for work stealing to even out subtrees of very
+    // different size
+    private static final int SPLIT_FACTOR = 16;
+
+    private final ForkJoinPool pool;
+
+    ParallelCounter(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    // Counts solutions of a board of any supported size up to limit
+    int countSolutions(int[][] board, int limit) {
+        SizedBoard solver = new SizedBoard(board.length);
+        if (!solver.load(board))
+            return 0;
+
+        long start = System.nanoTime();
+        int n = solver.countSolutions(limit, SEQUENTIAL_NODES, null);
+        if (!solver.aborted()) {
+            GeneratorMetrics.current().recordCheck(solver.nodes(), solver.backtracks(), System.nanoTime() - start);
+            return n;
+        }
+
+        Count count = new Count(limit);
+        count.nodes.add(solver.nodes());
+        count.backtracks.add(solver.backtracks());
+        int share = SPLIT_FACTOR * pool.getParallelism();
+        pool.invoke(new CountTask(solver, 0, share, count));
+        GeneratorMetrics.current().recordCheck(count.nodes.sum(), count.backtracks.sum(),
+                System.nanoTime() - start);
+        return Math.min(count.found.get(), limit);
+    }
+
+    // State all tasks of one count share
+    private static final class Count {
+        final int limit;
+        final AtomicInteger found = new AtomicInteger();
+        final AtomicBoolean stop = new AtomicBoolean();
+        final LongAdder nodes = new LongAdder();
+        final LongAdder backtracks = new LongAdder();
+
+        Count(int limit) {
+            this.limit = limit;
+        }
+    }
+
+    // One subtree of the search: the board as the search reaches it at depth.
+    // Tasks are never serialized, ForkJoinTask is Serializable only by
+    // inheritance.
+    @SuppressWarnings("serial")
+    private static final class CountTask extends RecursiveAction {
+        private final SizedBoard board;
+        private final int depth;
+        // Number of tasks this subtree may still be split into
+        private final int share;
+        private final Count count;
+
+        CountTask(SizedBoard board, int depth, int share, Count count) {
+            this.board = board;
+            this.depth = depth;
+            this.share = share;
+            this.count = count;
+        }
+
+        @Override
+        protected void compute() {
+            int remaining = count.limit - count.found.get();
+            if (count.stop.get() || remaining <= 0)
+                return;
+            if (share <= 1) {
+                int n = board.countFrom(depth, remaining, count.stop);
+                count.nodes.add(board.nodes());
+                count.backtracks.add(board.backtracks());
+                add(n);
+                return;
+            }
+
+            int level = depth;
+            int pos;
+            int free;
+            while (true) {
+                pos = board.branchAt(level);
+                if (pos < 0) {
+                    add(1);
+                    return;
+                }
+                free = board.candidates(pos);
+                if (Integer.bitCount(free) != 1)
+                    break;
+                board.set(pos, free);
+                level++;
+            }
+
+            int branches = Integer.bitCount(free);
+            List<CountTask> tasks = new ArrayList<>(branches);
+            while (free != 0) {
+                int bit = free & -free;
+                free ^= bit;
+                SizedBoard child = new SizedBoard(board);
+                child.set(pos, bit);
+                tasks.add(new CountTask(child, level + 1, share / branches, count));
+            }
+            invokeAll(tasks);
+        }
+
+        private void add(int n) {
+            if (n > 0 && count.found.addAndGet(n) >= count.limit)
+                count.stop.set(true);
+        }
+    }
+
+    // Times sequential and parallel uniqueness checks on 25x25 puzzles
+    public static void main(String[] args) {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 3;
+        ParallelCounter counter = new ParallelCounter(ForkJoinPool.commonPool());
+        Random random = new Random(1);
+        for (int i = 0; i < count; i++) {
+            int[][] puzzle = SudokuGenerator.generateSized(25, "hard", random).puzzle;
+            SizedBoard board = new SizedBoard(25);
+            board.load(puzzle);
+            long start = System.nanoTime();
+            int sequential = board.countSolutions(2);
+            long middle = System.nanoTime();
+            int parallel = counter.countSolutions(puzzle, 2);
+            long end = System.nanoTime();
+            System.out.printf("25x25 hard: %d solutions, sequential %.0f ms, parallel %.0f ms (%d) on %d threads%n",
+                    sequential, (middle - start) / 1e6, (end - middle) / 1e6, parallel,
+                    ForkJoinPool.commonPool().getParallelism());
+        }
+    }
+}
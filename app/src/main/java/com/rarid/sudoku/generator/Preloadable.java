@@ -0,0 +1,7 @@
+package com.rarid.sudoku.generator;
+
+// Takes the puzzles an earlier run already wrote when the CLI resumes a file,
+// so they count towards the target and are deduped against
+interface Preloadable {
+    void preload(int[][] puzzle);
+}
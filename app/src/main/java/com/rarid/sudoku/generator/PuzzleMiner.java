@@ -0,0 +1,273 @@
+package com.rarid.sudoku.generator;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.Properties;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Long-running search for rare puzzles, the generator CLI's mining mode. The
+// difficulty path stops removing clues at 26 or more, so puzzles with 22
+// clues or fewer almost never come out of it. A mining attempt instead tries
+// to remove every clue of a fresh grid in random order, which leaves a
+// minimal puzzle of 21 to 29 clues, and keeps it when it has at most
+// maxClues clues and rates at least minRating. About one minimal puzzle in
+// 25 has 22 clues or fewer.
+//
+// Attempts are independent and take under a millisecond, so the workers
+// simply draw the next one until the target is met or the run is stopped;
+// no core waits while another has work. Found puzzles are deduped by
+// canonical form and written at once. The number of attempts and the time
+// spent are checkpointed next to the output every REPORT_SECONDS, which is
+// also when the discovery rate is printed, so a run of many hours can be
+// stopped and resumed without losing more than that.
+final class PuzzleMiner implements Preloadable {
+    // Seconds between two progress lines and checkpoints
+    static final int REPORT_SECONDS = 60;
+
+    private static final String ATTEMPTS = "attempts";
+    private static final String ELAPSED_MILLIS = "elapsedMillis";
+    private static final String MAX_CLUES = "maxClues";
+    private static final String MIN_RATING = "minRating";
+
+    private final int maxClues;
+    private final int minRating;
+    private final int count;
+    private final int threads;
+    private final Long seed;
+
+    private final CanonicalKeySet puzzleSet = new CanonicalKeySet(1024);
+    private final Canonicalizer preloadCanonicalizer = new Canonicalizer();
+    private final long[] preloadKey = new long[2];
+    private final AtomicInteger found = new AtomicInteger();
+    private final AtomicInteger duplicates = new AtomicInteger();
+    private final AtomicLong attempts = new AtomicLong();
+    private final AtomicBoolean stop = new AtomicBoolean();
+    private final int[] clueCounts = new int[82];
+    // Time of earlier runs on the same file
+    private long previousMillis;
+    private long startAttempts;
+    private long wallNanos;
+    private GeneratorMetrics metrics;
+
+    private PuzzleOutput writer;
+    private volatile IOException writeError;
+
+    // With a seed every worker gets its own fixed stream, shifted by the
+    // attempts already made so a resumed run does not repeat them
+    PuzzleMiner(int maxClues, int minRating, int count, int threads, Long seed) {
+        this.maxClues = maxClues;
+        this.minRating = minRating;
+        this.count = count;
+        this.threads = threads;
+        this.seed = seed;
+    }
+
+    // Counts a puzzle found by an earlier run
+    @Override
+    public void preload(int[][] puzzle) {
+        preloadCanonicalizer.key(puzzle, preloadKey);
+        if (puzzleSet.add(preloadKey))
+            found.incrementAndGet();
+    }
+
+    int found() {
+        return found.get();
+    }
+
+    // Picks up the attempts and time of an earlier run, throws IOException
+    // when the checkpoint was written for another target
+    void loadCheckpoint(File file) throws IOException {
+        Properties props = new Properties();
+        try (InputStream in = new FileInputStream(file)) {
+            props.load(in);
+        }
+        try {
+            if (Integer.parseInt(props.getProperty(MAX_CLUES)) != maxClues
+                    || Integer.parseInt(props.getProperty(MIN_RATING)) != minRating)
+                throw new IOException(file + " belongs to a run with another target");
+            attempts.set(Long.parseLong(props.getProperty(ATTEMPTS)));
+            previousMillis = Long.parseLong(props.getProperty(ELAPSED_MILLIS));
+        } catch (NumberFormatException e) {
+            throw new IOException("Corrupt checkpoint " + file);
+        }
+    }
+
+    // Written to a temporary file first and renamed, so a crash while
+    // saving leaves the previous checkpoint intact
+    private void saveCheckpoint(File file, long sessionNanos) throws IOException {
+        Properties props = new Properties();
+        props.setProperty(MAX_CLUES, Integer.toString(maxClues));
+        props.setProperty(MIN_RATING, Integer.toString(minRating));
+        props.setProperty(ATTEMPTS, Long.toString(attempts.get()));
+        props.setProperty(ELAPSED_MILLIS, Long.toString(previousMillis + sessionNanos / 1_000_000));
+        File tmp = new File(file.getPath() + ".tmp");
+        try (OutputStream out = new FileOutputStream(tmp)) {
+            props.store(out, "Puzzle mining progress");
+        }
+        if (!tmp.renameTo(file) && (!file.delete() || !tmp.renameTo(file)))
+            throw new IOException("Could not replace " + file);
+    }
+
+    // Makes run return after the attempts in progress, from any thread
+    void stop() {
+        stop.set(true);
+    }
+
+    // Mines until count puzzles are found, maxNanos have passed or stop()
+    // is called. Progress goes to out and the checkpoint to checkpoint.
+    void run(PuzzleOutput writer, File checkpoint, long maxNanos, PrintStream out) throws IOException {
+        this.writer = writer;
+        long start = System.nanoTime();
+        GeneratorMetrics before = GeneratorMetrics.total();
+        startAttempts = attempts.get();
+        Thread[] workers = new Thread[threads];
+        for (int i = 0; i < threads; i++) {
+            final int worker = i;
+            workers[i] = new Thread(() -> work(worker), "PuzzleMiner-" + i);
+            workers[i].start();
+        }
+
+        long lastAttempts = startAttempts;
+        int lastFound = found.get();
+        long lastReport = start;
+        try {
+            for (Thread worker : workers) {
+                while (worker.isAlive()) {
+                    worker.join(1000);
+                    long now = System.nanoTime();
+                    if (now - start >= maxNanos)
+                        stop.set(true);
+                    if (now - lastReport >= REPORT_SECONDS * 1_000_000_000L) {
+                        saveCheckpoint(checkpoint, now - start);
+                        long tried = attempts.get();
+                        int total = found.get();
+                        printRate(out, now - start, tried - lastAttempts, total - lastFound, now - lastReport);
+                        lastAttempts = tried;
+                        lastFound = total;
+                        lastReport = now;
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            // The writer is closed after run returns, no worker may still be
+            // writing then
+            stop.set(true);
+            for (Thread worker : workers)
+                joinQuietly(worker);
+        }
+        wallNanos = System.nanoTime() - start;
+        metrics = GeneratorMetrics.total().since(before);
+        saveCheckpoint(checkpoint, wallNanos);
+        if (writeError != null)
+            throw writeError;
+    }
+
+    private static void joinQuietly(Thread thread) {
+        boolean interrupted = false;
+        while (thread.isAlive()) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted)
+            Thread.currentThread().interrupt();
+    }
+
+    private void work(int worker) {
+        Random random = seed != null
+                ? new Random(seed + worker * 0x9E3779B97F4A7C15L + startAttempts)
+                : new Random();
+        ClueRemover remover = new ClueRemover();
+        DifficultyRater rater = new DifficultyRater();
+        Canonicalizer canonicalizer = new Canonicalizer();
+        long[] key = new long[2];
+        int[] cells = new int[81];
+        int[][] puzzle = new int[9][9];
+        while (!stop.get() && found.get() < count && writeError == null) {
+            attempts.incrementAndGet();
+            int[][] solution = SudokuGenerator.generateFullSolution(random);
+            long start = System.nanoTime();
+            remover.reset(solution);
+            for (int i = 0; i < 81; i++)
+                cells[i] = i;
+            for (int i = 80; i > 0; i--) {
+                int j = random.nextInt(i + 1);
+                int tmp = cells[i];
+                cells[i] = cells[j];
+                cells[j] = tmp;
+            }
+            for (int cell : cells)
+                remover.tryRemove(cell);
+            remover.recordTo(GeneratorMetrics.current(), System.nanoTime() - start);
+            if (remover.clues() > maxClues)
+                continue;
+            remover.store(puzzle);
+            if (minRating > 0 && SudokuGenerator.rate(rater, puzzle) < minRating)
+                continue;
+            canonicalizer.key(puzzle, key);
+            if (!puzzleSet.add(key)) {
+                duplicates.incrementAndGet();
+                continue;
+            }
+            // Claimed only once the puzzle qualifies, so the run never
+            // overshoots the requested count
+            if (found.incrementAndGet() > count)
+                break;
+            try {
+                writer.write(puzzle, solution);
+            } catch (IOException e) {
+                writeError = e;
+                break;
+            }
+            synchronized (clueCounts) {
+                clueCounts[remover.clues()]++;
+            }
+        }
+    }
+
+    private void printRate(PrintStream out, long elapsedNanos, long tried, int newlyFound, long intervalNanos) {
+        double hours = intervalNanos / 3.6e12;
+        double totalHours = (previousMillis + elapsedNanos / 1_000_000) / 3.6e6;
+        out.printf("[%s] %d attempts (%.0f/s), %d found, %d in the last interval (%.1f/hour, %.1f/hour overall)%n",
+                clock(previousMillis + elapsedNanos / 1_000_000), attempts.get(), tried / (intervalNanos / 1e9),
+                found.get(), newlyFound, newlyFound / hours, totalHours == 0 ? 0.0 : found.get() / totalHours);
+    }
+
+    void printReport(PrintStream out) {
+        double seconds = wallNanos / 1e9;
+        long totalMillis = previousMillis + wallNanos / 1_000_000;
+        out.printf("Mined %d puzzles with at most %d clues in %s (%s in all runs), %d attempts%n", found.get(),
+                maxClues, clock(wallNanos / 1_000_000), clock(totalMillis), attempts.get());
+        out.printf("Discovery rate: %.1f puzzles/hour, one in %.0f attempts%n",
+                totalMillis == 0 ? 0.0 : found.get() / (totalMillis / 3.6e6),
+                found.get() == 0 ? 0.0 : (double) attempts.get() / found.get());
+        out.printf("Duplicates rejected: %d, %.1f attempts/sec this run%n", duplicates.get(),
+                seconds == 0 ? 0.0 : (attempts.get() - startAttempts) / seconds);
+        out.println("Clues of the puzzles found in this run:");
+        for (int clues = 0; clues <= 81; clues++) {
+            if (clueCounts[clues] > 0)
+                out.printf("  %2d: %7d%n", clues, clueCounts[clues]);
+        }
+        if (metrics != null) {
+            out.println("Search effort:");
+            metrics.print(out);
+        }
+    }
+
+    private static String clock(long millis) {
+        long seconds = millis / 1000;
+        return String.format("%d:%02d:%02d", seconds / 3600, seconds / 60 % 60, seconds % 60);
+    }
+}
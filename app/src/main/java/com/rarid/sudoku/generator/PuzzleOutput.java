@@ -0,0 +1,9 @@
+package com.rarid.sudoku.generator;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+// Destination for puzzles accepted by the generator CLI
+interface PuzzleOutput extends Closeable {
+    void write(int[][] puzzle, int[][] solution) throws IOException;
+}
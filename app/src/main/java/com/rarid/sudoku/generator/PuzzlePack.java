@@ -0,0 +1,116 @@
+package com.rarid.sudoku.generator;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+
+// Read side of the binary puzzle pack format. A pack is a 16 byte header
+// followed by fixed width records:
+//
+//   int   magic    'SDKP'
+//   short version  1
+//   short flags    FLAG_SOLUTIONS when every record also carries its solution
+//   int   count    number of records
+//   int   reserved 0
+//
+// Every grid is 81 cells of 4 bits, two cells per byte with the first cell in
+// the high nibble, so a grid takes 41 bytes. Because the records are fixed
+// width, the offset of puzzle #k is computed directly and the pack is decoded
+// in place from a memory mapped buffer without reading anything else.
+public final class PuzzlePack {
+    static final int MAGIC = 0x53444B50; // "SDKP"
+    static final short VERSION = 1;
+    static final short FLAG_SOLUTIONS = 1;
+    static final int HEADER_SIZE = 16;
+    static final int GRID_BYTES = 41;
+
+    private final ByteBuffer buffer;
+    private final int count;
+    private final boolean hasSolutions;
+    private final int recordSize;
+
+    private PuzzlePack(ByteBuffer buffer) throws IOException {
+        this.buffer = buffer.order(ByteOrder.BIG_ENDIAN);
+        if (buffer.limit() < HEADER_SIZE || buffer.getInt(0) != MAGIC)
+            throw new IOException("Not a puzzle pack");
+        if (buffer.getShort(4) != VERSION)
+            throw new IOException("Unsupported puzzle pack version " + buffer.getShort(4));
+        hasSolutions = (buffer.getShort(6) & FLAG_SOLUTIONS) != 0;
+        recordSize = recordSize(hasSolutions);
+        // A pack cut short by a crash still serves every complete record
+        count = Math.min(buffer.getInt(8), (buffer.limit() - HEADER_SIZE) / recordSize);
+    }
+
+    // Maps a whole pack file
+    public static PuzzlePack open(File file) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            return open(raf.getChannel(), 0, raf.length());
+        }
+    }
+
+    // Maps a pack stored at an offset inside a larger file, such as an
+    // uncompressed asset inside the APK
+    public static PuzzlePack open(FileChannel channel, long offset, long length) throws IOException {
+        return new PuzzlePack(channel.map(FileChannel.MapMode.READ_ONLY, offset, length));
+    }
+
+    public int size() {
+        return count;
+    }
+
+    public boolean hasSolutions() {
+        return hasSolutions;
+    }
+
+    public int[][] getPuzzle(int index) {
+        return decode(offset(index));
+    }
+
+    // Returns the stored solution, or solves the puzzle when the pack was
+    // built without solutions
+    public int[][] getSolution(int index) {
+        if (hasSolutions)
+            return decode(offset(index) + GRID_BYTES);
+        return SudokuGenerator.solvePuzzle(getPuzzle(index));
+    }
+
+    private int offset(int index) {
+        if (index < 0 || index >= count)
+            throw new IndexOutOfBoundsException("Puzzle " + index + " of " + count);
+        return HEADER_SIZE + index * recordSize;
+    }
+
+    private int[][] decode(int offset) {
+        int[][] grid = new int[9][9];
+        for (int i = 0; i < 81; i++) {
+            int b = buffer.get(offset + i / 2);
+            grid[i / 9][i % 9] = (i % 2 == 0 ? b >> 4 : b) & 0xF;
+        }
+        return grid;
+    }
+
+    static int recordSize(boolean hasSolutions) {
+        return hasSolutions ? GRID_BYTES * 2 : GRID_BYTES;
+    }
+
+    static int[][] decode(byte[] in, int offset) {
+        int[][] grid = new int[9][9];
+        for (int i = 0; i < 81; i++) {
+            int b = in[offset + i / 2];
+            grid[i / 9][i % 9] = (i % 2 == 0 ? b >> 4 : b) & 0xF;
+        }
+        return grid;
+    }
+
+    static void encode(int[][] grid, byte[] out, int offset) {
+        for (int i = 0; i < GRID_BYTES; i++)
+            out[offset + i] = 0;
+        for (int i = 0; i < 81; i++) {
+            int val = grid[i / 9][i % 9];
+            out[offset + i / 2] |= (byte) (i % 2 == 0 ? val << 4 : val);
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.rarid.sudoku.generator;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+// Builds a binary puzzle pack, see PuzzlePack for the layout. Records are
+// appended as they arrive and the header count is patched on every flush, so
+// an interrupted pack stays readable and can be resumed.
+final class PuzzlePackWriter implements PuzzleOutput {
+    private final RandomAccessFile file;
+    private final boolean withSolutions;
+    private final int flushEvery;
+    private final byte[] record;
+    private final byte[] pending;
+    private int pendingRecords;
+    private int count;
+
+    // When appending, the existing header decides whether solutions are
+    // stored so every record in the pack keeps the same width
+    PuzzlePackWriter(File file, boolean withSolutions, boolean append, int flushEvery) throws IOException {
+        this.file = new RandomAccessFile(file, "rw");
+        if (append) {
+            this.file.seek(6);
+            withSolutions = (this.file.readShort() & PuzzlePack.FLAG_SOLUTIONS) != 0;
+            count = this.file.readInt();
+        }
+        this.withSolutions = withSolutions;
+        this.flushEvery = flushEvery;
+        this.record = new byte[PuzzlePack.recordSize(withSolutions)];
+        this.pending = new byte[record.length * flushEvery];
+        if (!append) {
+            this.file.setLength(0);
+            this.file.writeInt(PuzzlePack.MAGIC);
+            this.file.writeShort(PuzzlePack.VERSION);
+            this.file.writeShort(withSolutions ? PuzzlePack.FLAG_SOLUTIONS : 0);
+            this.file.writeInt(0);
+            this.file.writeInt(0);
+        }
+    }
+
+    @Override
+    public synchronized void write(int[][] puzzle, int[][] solution) throws IOException {
+        PuzzlePack.encode(puzzle, record, 0);
+        if (withSolutions)
+            PuzzlePack.encode(solution, record, PuzzlePack.GRID_BYTES);
+        System.arraycopy(record, 0, pending, pendingRecords * record.length, record.length);
+        if (++pendingRecords >= flushEvery)
+            flush();
+    }
+
+    private void flush() throws IOException {
+        file.seek(PuzzlePack.HEADER_SIZE + (long) count * record.length);
+        file.write(pending, 0, pendingRecords * record.length);
+        count += pendingRecords;
+        pendingRecords = 0;
+        file.seek(8);
+        file.writeInt(count);
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            file.close();
+        }
+    }
+
+    // Hands every record of an existing pack to the batch and cuts off a
+    // record torn by a crash. Returns how many puzzles were found.
+    static int resume(File file, Preloadable batch) throws IOException {
+        PuzzlePack pack = PuzzlePack.open(file);
+        for (int i = 0; i < pack.size(); i++)
+            batch.preload(pack.getPuzzle(i));
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(PuzzlePack.HEADER_SIZE + (long) pack.size() * PuzzlePack.recordSize(pack.hasSolutions()));
+            raf.seek(8);
+            raf.writeInt(pack.size());
+        }
+        return pack.size();
+    }
+}
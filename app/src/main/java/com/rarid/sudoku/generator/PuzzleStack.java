@@ -0,0 +1,53 @@
+package com.rarid.sudoku.generator;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+// File backed stack of puzzles with their solutions, stored as headerless
+// PuzzlePack records. Pushing appends a record and popping reads the last one
+// and truncates it away, so both are constant time no matter how deep the
+// stack is, and the contents survive process death.
+public final class PuzzleStack {
+    private static final int RECORD_SIZE = PuzzlePack.recordSize(true);
+
+    private final File file;
+    private final byte[] record = new byte[RECORD_SIZE];
+
+    public PuzzleStack(File file) {
+        this.file = file;
+    }
+
+    public synchronized int size() {
+        return (int) (file.length() / RECORD_SIZE);
+    }
+
+    public synchronized void push(int[][] puzzle, int[][] solution) throws IOException {
+        PuzzlePack.encode(puzzle, record, 0);
+        PuzzlePack.encode(solution, record, PuzzlePack.GRID_BYTES);
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            // Drop a record torn by a crash before appending
+            long end = raf.length() / RECORD_SIZE * RECORD_SIZE;
+            raf.setLength(end);
+            raf.seek(end);
+            raf.write(record);
+        }
+    }
+
+    // Returns null when the stack is empty
+    public synchronized SudokuGenerator.PuzzleWithSolution pop() throws IOException {
+        if (!file.exists())
+            return null;
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            long records = raf.length() / RECORD_SIZE;
+            if (records == 0)
+                return null;
+            long offset = (records - 1) * RECORD_SIZE;
+            raf.seek(offset);
+            raf.readFully(record);
+            raf.setLength(offset);
+        }
+        return new SudokuGenerator.PuzzleWithSolution(PuzzlePack.decode(record, 0),
+                PuzzlePack.decode(record, PuzzlePack.GRID_BYTES));
+    }
+}
@@ -0,0 +1,169 @@
+package com.rarid.sudoku.generator;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+// Writes puzzles to disk as soon as they are accepted, so memory stays flat
+// and a crash only loses the puzzles written since the last flush.
+//
+// Two formats are supported:
+//   json   - one compact JSON array, the format the app assets use
+//   ndjson - one {"puzzle":..,"solution":..} object per line, which can be
+//            resumed after a crash because every complete line is a puzzle
+final class PuzzleWriter implements PuzzleOutput {
+    static final String JSON = "json";
+    static final String NDJSON = "ndjson";
+
+    private final Writer out;
+    private final JsonWriter json;
+    private final int flushEvery;
+    private int sinceFlush;
+
+    PuzzleWriter(File file, String format, boolean append, int flushEvery) throws IOException {
+        this.flushEvery = flushEvery;
+        this.out = new BufferedWriter(new OutputStreamWriter(
+                new FileOutputStream(file, append), StandardCharsets.UTF_8));
+        if (JSON.equals(format)) {
+            json = new JsonWriter(out);
+            json.beginArray();
+        } else {
+            json = null;
+        }
+    }
+
+    @Override
+    public synchronized void write(int[][] puzzle, int[][] solution) throws IOException {
+        if (json != null) {
+            writePuzzle(json, puzzle, solution);
+        } else {
+            // A JsonWriter flushes its target, so each line is built in memory
+            // first to keep the output buffered
+            StringWriter line = new StringWriter();
+            writePuzzle(new JsonWriter(line), puzzle, solution);
+            line.write('\n');
+            out.write(line.toString());
+        }
+        if (++sinceFlush >= flushEvery) {
+            out.flush();
+            sinceFlush = 0;
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (json != null) {
+            json.endArray();
+            json.close();
+        } else {
+            out.close();
+        }
+    }
+
+    private static void writePuzzle(JsonWriter writer, int[][] puzzle, int[][] solution) throws IOException {
+        writer.beginObject();
+        writer.name("puzzle");
+        writeGrid(writer, puzzle);
+        writer.name("solution");
+        writeGrid(writer, solution);
+        writer.endObject();
+    }
+
+    private static void writeGrid(JsonWriter writer, int[][] grid) throws IOException {
+        writer.beginArray();
+        for (int[] row : grid) {
+            writer.beginArray();
+            for (int val : row)
+                writer.value(val);
+            writer.endArray();
+        }
+        writer.endArray();
+    }
+
+    // Hands every puzzle of a partially written ndjson file to the batch so it
+    // is counted and deduped against, and returns how many were found. Only
+    // an unterminated last line, a puzzle torn by a crash, is cut off so new
+    // puzzles can be appended safely. Any other line that is not a puzzle,
+    // or a file that is not ndjson at all, throws IOException and leaves the
+    // file untouched. Blank lines are skipped.
+    static int resume(File file, Preloadable batch) throws IOException {
+        int found = 0;
+        // In bytes, lines are decoded only once they are complete
+        long validLength = 0;
+        long position = 0;
+        int lineNumber = 0;
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+        try (InputStream in = new BufferedInputStream(new FileInputStream(file))) {
+            int b;
+            while ((b = in.read()) != -1) {
+                position++;
+                if (b != '\n') {
+                    line.write(b);
+                    continue;
+                }
+                lineNumber++;
+                String text = new String(line.toByteArray(), StandardCharsets.UTF_8);
+                line.reset();
+                if (!text.trim().isEmpty()) {
+                    int[][] puzzle = parsePuzzle(text);
+                    if (puzzle == null)
+                        throw new IOException("Line " + lineNumber + " of " + file + " is not a puzzle, "
+                                + "only ndjson output can be resumed");
+                    batch.preload(puzzle);
+                    found++;
+                }
+                validLength = position;
+            }
+        }
+        // What a torn write leaves is the start of an object
+        String tail = new String(line.toByteArray(), StandardCharsets.UTF_8).trim();
+        if (!tail.isEmpty() && !tail.startsWith("{"))
+            throw new IOException(file + " does not end in a puzzle, only ndjson output can be resumed");
+        if (validLength < position) {
+            try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+                raf.setLength(validLength);
+            }
+        }
+        return found;
+    }
+
+    private static int[][] parsePuzzle(String line) {
+        try (JsonReader reader = new JsonReader(new StringReader(line))) {
+            int[][] puzzle = null;
+            reader.beginObject();
+            while (reader.hasNext()) {
+                if (reader.nextName().equals("puzzle")) {
+                    puzzle = new int[9][9];
+                    reader.beginArray();
+                    for (int r = 0; r < 9; r++) {
+                        reader.beginArray();
+                        for (int c = 0; c < 9; c++)
+                            puzzle[r][c] = reader.nextInt();
+                        reader.endArray();
+                    }
+                    reader.endArray();
+                } else {
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
+            return puzzle;
+        } catch (IOException | IllegalStateException | NumberFormatException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,253 @@
+package com.rarid.sudoku.generator;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+
+// Solution search for boards of any supported size that can stop after any
+// number of steps and continue later exactly where it stopped. There is no
+// recursion: the cell filled at every depth and the digits still to try there
+// are kept on an explicit stack, so a long search can be time sliced on a
+// low priority thread, and the stack depth of a 25x25 board is no risk. A
+// step is one digit placed, the order is the deterministic one of SizedBoard.
+//
+// run() returns FOUND with every solution, the board then holds it until
+// the next call, PAUSED when the step budget is spent and DONE once the whole
+// tree is searched. To count solutions up to a limit, call it until it
+// returns DONE or solutions() reaches the limit.
+//
+// checkpoint() saves the search to bytes that restore() turns back into a
+// solver, so a search survives the death of the process:
+//
+//   int   magic    'SDKR'
+//   short version  1
+//   short size     rows of the board
+//   long  steps    steps taken so far
+//   long  found    solutions found so far
+//   byte  state    0 searching, 1 about to branch at depth, 2 done
+//   int   depth
+//   byte  clues    size * size digits of the puzzle, row by row
+//   then  n entries of short cell, byte digit, int untried digits, for the
+//         stack from depth 0 up
+//   then  short cell for every other cell to fill, in the order the search
+//         looks at them, which decides between cells with as few candidates
+public final class ResumableSolver {
+    public static final int PAUSED = 0;
+    public static final int FOUND = 1;
+    public static final int DONE = 2;
+
+    static final int MAGIC = 0x53444B52; // "SDKR"
+    static final short VERSION = 1;
+
+    private static final byte SEARCHING = 0;
+    private static final byte BRANCHING = 1;
+    private static final byte FINISHED = 2;
+
+    // Steps between two looks at the clock in runFor
+    private static final int CLOCK_STEPS = 4096;
+
+    private final SizedBoard board;
+    private final int[][] puzzle;
+    // Cell filled at every depth and the digits still to try there
+    private final int[] pos;
+    private final int[] untried;
+    private int depth;
+    private byte state;
+    private long steps;
+    private long found;
+
+    // A puzzle whose clues conflict has no solutions, its first run() is DONE
+    public ResumableSolver(int[][] puzzle) {
+        int size = puzzle.length;
+        board = new SizedBoard(size);
+        this.puzzle = new int[size][];
+        for (int i = 0; i < size; i++)
+            this.puzzle[i] = puzzle[i].clone();
+        pos = new int[board.cellCount];
+        untried = new int[board.cellCount];
+        state = board.load(puzzle) ? BRANCHING : FINISHED;
+    }
+
+    // Searches for at most maxSteps steps, see the class comment for the
+    // result
+    public int run(long maxSteps) {
+        long stop = maxSteps >= Long.MAX_VALUE - steps ? Long.MAX_VALUE : steps + maxSteps;
+        while (state != FINISHED) {
+            if (state == BRANCHING) {
+                int cell = board.branchAt(depth);
+                if (cell < 0) {
+                    found++;
+                    // The next run continues with the last cell filled
+                    depth--;
+                    state = SEARCHING;
+                    return FOUND;
+                }
+                pos[depth] = cell;
+                untried[depth] = board.candidates(cell);
+                state = SEARCHING;
+            }
+            if (steps >= stop)
+                return PAUSED;
+            if (!nextCandidate())
+                state = FINISHED;
+        }
+        return DONE;
+    }
+
+    // Searches for about budgetNanos of wall time
+    public int runFor(long budgetNanos) {
+        long start = System.nanoTime();
+        while (true) {
+            int result = run(CLOCK_STEPS);
+            if (result != PAUSED || System.nanoTime() - start >= budgetNanos)
+                return result;
+        }
+    }
+
+    // The solution run() just returned FOUND for
+    public void store(int[][] solution) {
+        board.store(solution);
+    }
+
+    public int size() {
+        return board.size;
+    }
+
+    public long steps() {
+        return steps;
+    }
+
+    public long solutions() {
+        return found;
+    }
+
+    public boolean isDone() {
+        return state == FINISHED;
+    }
+
+    // Puts the next untried digit into the cell at depth and goes one level
+    // deeper, backing up over cells that have none left. False when the
+    // whole tree is searched.
+    private boolean nextCandidate() {
+        while (depth >= 0) {
+            board.unset(pos[depth]);
+            int free = untried[depth];
+            if (free != 0) {
+                int bit = free & -free;
+                untried[depth] = free ^ bit;
+                board.set(pos[depth], bit);
+                depth++;
+                steps++;
+                state = BRANCHING;
+                return true;
+            }
+            depth--;
+        }
+        return false;
+    }
+
+    public byte[] checkpoint() {
+        int size = board.size;
+        // The cell at depth is on the stack too unless the search is about
+        // to pick it
+        int entries = state == FINISHED ? 0 : state == BRANCHING ? depth : depth + 1;
+        int open = state == FINISHED ? 0 : board.cellCount - board.clues();
+        ByteBuffer out = ByteBuffer.allocate(29 + size * size + entries * 7 + (open - entries) * 2);
+        out.putInt(MAGIC);
+        out.putShort(VERSION);
+        out.putShort((short) size);
+        out.putLong(steps);
+        out.putLong(found);
+        out.put(state);
+        out.putInt(depth);
+        for (int[] row : puzzle)
+            for (int val : row)
+                out.put((byte) val);
+        int[][] cells = new int[size][size];
+        board.store(cells);
+        for (int d = 0; d < entries; d++) {
+            out.putShort((short) pos[d]);
+            out.put((byte) cells[pos[d] / size][pos[d] % size]);
+            out.putInt(untried[d]);
+        }
+        for (int k = entries; k < open; k++)
+            out.putShort((short) board.emptyAt(k));
+        return out.array();
+    }
+
+    // The solver a checkpoint was taken of, ready to run on. Throws
+    // IOException for data that is not a valid checkpoint: digits out of
+    // range, or a stack or order that names a clue or the same cell twice.
+    public static ResumableSolver restore(byte[] data) throws IOException {
+        ByteBuffer in = ByteBuffer.wrap(data);
+        try {
+            if (in.getInt() != MAGIC)
+                throw new IOException("Not a solver checkpoint");
+            short version = in.getShort();
+            if (version != VERSION)
+                throw new IOException("Unsupported solver checkpoint version " + version);
+            int size = in.getShort();
+            if (!SizedBoard.isSupported(size))
+                throw new IOException("Unsupported board size " + size);
+            long steps = in.getLong();
+            long found = in.getLong();
+            byte state = in.get();
+            int depth = in.getInt();
+            int[][] puzzle = new int[size][size];
+            for (int[] row : puzzle) {
+                for (int c = 0; c < size; c++) {
+                    row[c] = in.get();
+                    if (row[c] < 0 || row[c] > size)
+                        throw new IOException("Corrupt solver checkpoint");
+                }
+            }
+
+            ResumableSolver solver = new ResumableSolver(puzzle);
+            solver.steps = steps;
+            solver.found = found;
+            if (state == FINISHED || solver.state == FINISHED) {
+                solver.state = FINISHED;
+                return solver;
+            }
+            if ((state != SEARCHING && state != BRANCHING) || depth < -1 || depth >= solver.pos.length)
+                throw new IOException("Corrupt solver checkpoint");
+            int entries = state == BRANCHING ? depth : depth + 1;
+            int all = (1 << size) - 1;
+            for (int d = 0; d < entries; d++) {
+                int cell = in.getShort();
+                int digit = in.get();
+                int untried = in.getInt();
+                // Only the cell the search is at may still be empty
+                boolean empty = digit == 0 && d == depth;
+                if (!solver.moveTo(d, cell) || (digit < 1 && !empty) || digit > size || (untried & ~all) != 0)
+                    throw new IOException("Corrupt solver checkpoint");
+                if (!empty) {
+                    int bit = 1 << (digit - 1);
+                    if ((solver.board.candidates(cell) & bit) == 0)
+                        throw new IOException("Corrupt solver checkpoint");
+                    solver.board.set(cell, bit);
+                }
+                solver.pos[d] = cell;
+                solver.untried[d] = untried;
+            }
+            int open = solver.board.cellCount - solver.board.clues();
+            for (int k = entries; k < open; k++)
+                if (!solver.moveTo(k, in.getShort()))
+                    throw new IOException("Corrupt solver checkpoint");
+            solver.state = state;
+            solver.depth = depth;
+            return solver;
+        } catch (BufferUnderflowException e) {
+            throw new IOException("Truncated solver checkpoint");
+        }
+    }
+
+    // Moves cell to place k of the search order, false unless it is an open
+    // cell not placed at an earlier depth yet
+    private boolean moveTo(int k, int cell) {
+        if (k >= board.cellCount - board.clues() || cell < 0 || cell >= board.cellCount)
+            return false;
+        board.moveTo(k, cell);
+        return board.emptyAt(k) == cell;
+    }
+}
@@ -0,0 +1,387 @@
+package com.rarid.sudoku.generator;
+
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Generator and solver core for boards of any size from 4x4 to 25x25, boxes
+// being size x size for a box size of 2 to 5. Like BitboardSolver it keeps a
+// digit mask per row, column and box, at most 25 bits so a candidate set is a
+// single int. The row-major backtracker of the 9x9 path would never finish at
+// 16x16 or 25x25, so every search here branches on the empty cell with the
+// fewest candidates, and removals are tested with the forbidden digit search
+// of ClueRemover.
+//
+// Searches have a node budget. A fill that runs out starts over with new
+// random choices and a removal test that runs out keeps the clue, so the
+// puzzle stays unique either way.
+final class SizedBoard {
+    static final int MIN_BOX = 2;
+    static final int MAX_BOX = 5;
+
+    // Nodes a single search may visit per empty cell before giving up
+    private static final int FILL_NODES_PER_CELL = 8;
+    private static final int REMOVE_NODES_PER_CELL = 16;
+
+    // Nodes between two looks at the stop flag
+    private static final int STOP_CHECK_MASK = 1023;
+
+    final int box;
+    final int size;
+    final int cellCount;
+    private final int all;
+
+    private final int[] rowOf;
+    private final int[] colOf;
+    private final int[] boxOf;
+
+    private final int[] cells;
+    private final int[] rows;
+    private final int[] cols;
+    private final int[] boxes;
+
+    // Cells the search has to fill, kept in the order it filled them
+    private final int[] empty;
+    private int emptyCount;
+
+    // Nodes visited and digits taken back by the last search
+    private long nodes;
+    private long backtracks;
+    private long nodeLimit;
+    private boolean aborted;
+    // Leave the first completion found on the board
+    private boolean keep;
+    // Set by another thread to make the search give up, see ParallelCounter
+    private AtomicBoolean stop;
+
+    SizedBoard(int size) {
+        int box = (int) Math.round(Math.sqrt(size));
+        if (box * box != size || box < MIN_BOX || box > MAX_BOX)
+            throw new IllegalArgumentException("Unsupported board size " + size);
+        this.box = box;
+        this.size = size;
+        cellCount = size * size;
+        all = (1 << size) - 1;
+        rowOf = new int[cellCount];
+        colOf = new int[cellCount];
+        boxOf = new int[cellCount];
+        for (int i = 0; i < cellCount; i++) {
+            rowOf[i] = i / size;
+            colOf[i] = i % size;
+            boxOf[i] = (rowOf[i] / box) * box + colOf[i] / box;
+        }
+        cells = new int[cellCount];
+        rows = new int[size];
+        cols = new int[size];
+        boxes = new int[size];
+        empty = new int[cellCount];
+    }
+
+    // Copy of another board's state for a subtask of ParallelCounter. The
+    // order of the empty cells is copied too, so the copy continues exactly
+    // the search the original would have done.
+    SizedBoard(SizedBoard other) {
+        box = other.box;
+        size = other.size;
+        cellCount = other.cellCount;
+        all = other.all;
+        rowOf = other.rowOf;
+        colOf = other.colOf;
+        boxOf = other.boxOf;
+        cells = other.cells.clone();
+        rows = other.rows.clone();
+        cols = other.cols.clone();
+        boxes = other.boxes.clone();
+        empty = other.empty.clone();
+        emptyCount = other.emptyCount;
+    }
+
+    // True for the sizes this class handles, 4, 9, 16 and 25
+    static boolean isSupported(int size) {
+        int box = (int) Math.round(Math.sqrt(size));
+        return box * box == size && box >= MIN_BOX && box <= MAX_BOX;
+    }
+
+    // Loads a board, returns false if the given digits already conflict
+    boolean load(int[][] board) {
+        clear();
+        emptyCount = 0;
+        for (int i = 0; i < cellCount; i++) {
+            int val = board[rowOf[i]][colOf[i]];
+            if (val == 0) {
+                empty[emptyCount++] = i;
+                continue;
+            }
+            int bit = 1 << (val - 1);
+            if ((used(i) & bit) != 0)
+                return false;
+            place(i, bit);
+        }
+        return true;
+    }
+
+    // Empties the whole board
+    void clear() {
+        for (int i = 0; i < cellCount; i++) {
+            cells[i] = 0;
+            empty[i] = i;
+        }
+        for (int i = 0; i < size; i++) {
+            rows[i] = 0;
+            cols[i] = 0;
+            boxes[i] = 0;
+        }
+        emptyCount = cellCount;
+    }
+
+    void store(int[][] board) {
+        for (int i = 0; i < cellCount; i++)
+            board[rowOf[i]][colOf[i]] = cells[i];
+    }
+
+    int clues() {
+        return cellCount - emptyCount;
+    }
+
+    // Fills every empty cell with a random valid completion, returns false
+    // when the loaded board has none. A search that ran out of nodes starts
+    // over with fresh random choices and twice the budget, so a board
+    // without completion is still recognised in the end. The filled board
+    // counts as a full solution for tryRemove.
+    boolean fill(Random random) {
+        long budget = (long) FILL_NODES_PER_CELL * emptyCount + cellCount;
+        while (true) {
+            start(budget, true, null);
+            if (search(0, 1, random) == 1) {
+                emptyCount = 0;
+                return true;
+            }
+            if (!aborted)
+                return false;
+            budget *= 2;
+        }
+    }
+
+    // Fills the empty cells with the first solution in a fixed order, the
+    // same one on every call. Returns false and leaves the board unchanged
+    // when there is none.
+    boolean solve() {
+        start(Long.MAX_VALUE, true, null);
+        return search(0, 1, null) == 1;
+    }
+
+    // Counts solutions of the loaded board, stopping as soon as limit is
+    // reached. The board is left unchanged.
+    int countSolutions(int limit) {
+        return countSolutions(limit, Long.MAX_VALUE, null);
+    }
+
+    // Same with a node budget and a flag another thread can set to stop the
+    // search. The count is only complete when aborted() is false afterwards.
+    int countSolutions(int limit, long nodeBudget, AtomicBoolean stop) {
+        start(nodeBudget, false, stop);
+        return search(0, limit, null);
+    }
+
+    boolean aborted() {
+        return aborted;
+    }
+
+    long nodes() {
+        return nodes;
+    }
+
+    long backtracks() {
+        return backtracks;
+    }
+
+    // Counts the completions of the cells the search has not reached at
+    // depth, as part of a search split up by ParallelCounter
+    int countFrom(int depth, int limit, AtomicBoolean stop) {
+        start(Long.MAX_VALUE, false, stop);
+        return search(depth, limit, null);
+    }
+
+    // Picks the cell the search branches on at depth and moves it to that
+    // place in the order, exactly as the search does. Returns -1 when every
+    // cell is filled. The cell may have no candidates left.
+    int branchAt(int depth) {
+        if (depth == emptyCount)
+            return -1;
+        int best = depth;
+        int fewest = size + 1;
+        for (int k = depth; k < emptyCount; k++) {
+            int n = Integer.bitCount(candidates(empty[k]));
+            if (n < fewest) {
+                best = k;
+                fewest = n;
+                if (n <= 1)
+                    break;
+            }
+        }
+        int pos = empty[best];
+        empty[best] = empty[depth];
+        empty[depth] = pos;
+        return pos;
+    }
+
+    // The cell at place k of the search order. Ties between cells with as
+    // few candidates go to the earlier one, so a search rebuilt from a
+    // checkpoint needs the order too, see ResumableSolver.
+    int emptyAt(int k) {
+        return empty[k];
+    }
+
+    // Moves an empty cell to place depth in the search order
+    void moveTo(int depth, int pos) {
+        for (int k = depth; k < emptyCount; k++) {
+            if (empty[k] == pos) {
+                empty[k] = empty[depth];
+                empty[depth] = pos;
+                return;
+            }
+        }
+    }
+
+    int candidates(int pos) {
+        return ~used(pos) & all;
+    }
+
+    // Fills a cell chosen by branchAt
+    void set(int pos, int bit) {
+        place(pos, bit);
+    }
+
+    // Empties a cell filled by set again, does nothing for an empty cell
+    void unset(int pos) {
+        if (cells[pos] != 0)
+            remove(pos, 1 << (cells[pos] - 1));
+    }
+
+    // Empties the cell of a full or partly emptied board if the puzzle stays
+    // unique, otherwise keeps the clue and returns false. A test that runs
+    // out of nodes also keeps the clue.
+    boolean tryRemove(int pos) {
+        if (cells[pos] == 0)
+            return true;
+
+        int bit = 1 << (cells[pos] - 1);
+        remove(pos, bit);
+        int free = onlyPlace(pos, bit) ? 0 : ~used(pos) & all & ~bit;
+        start((long) REMOVE_NODES_PER_CELL * (emptyCount + 1) + cellCount, false, null);
+        while (free != 0) {
+            int other = free & -free;
+            free ^= other;
+            place(pos, other);
+            int found = search(0, 1, null);
+            remove(pos, other);
+            if (found > 0 || aborted) {
+                place(pos, bit);
+                return false;
+            }
+        }
+        empty[emptyCount++] = pos;
+        return true;
+    }
+
+    private void start(long nodeLimit, boolean keep, AtomicBoolean stop) {
+        nodes = 0;
+        backtracks = 0;
+        this.nodeLimit = nodeLimit;
+        this.keep = keep;
+        this.stop = stop;
+        aborted = false;
+    }
+
+    // Counts completions of empty[depth..emptyCount) up to limit. With a
+    // Random the candidates are drawn in random order. When keep is set
+    // the first completion stays on the board, otherwise the board is left
+    // unchanged.
+    private int search(int depth, int limit, Random random) {
+        if (depth == emptyCount)
+            return 1;
+        if (++nodes > nodeLimit || (stop != null && (nodes & STOP_CHECK_MASK) == 0 && stop.get())) {
+            aborted = true;
+            return 0;
+        }
+
+        int best = depth;
+        int free = 0;
+        int fewest = size + 1;
+        for (int k = depth; k < emptyCount; k++) {
+            int c = ~used(empty[k]) & all;
+            int n = Integer.bitCount(c);
+            if (n < fewest) {
+                if (n == 0)
+                    return 0;
+                best = k;
+                free = c;
+                fewest = n;
+                if (n == 1)
+                    break;
+            }
+        }
+        int pos = empty[best];
+        empty[best] = empty[depth];
+        empty[depth] = pos;
+
+        // With a Random every candidate is drawn at random from the ones left,
+        // so every order of the digits is possible, as in the 9x9 fill
+        int found = 0;
+        while (free != 0) {
+            int bit = random != null ? randomBit(free, random) : free & -free;
+            free ^= bit;
+            place(pos, bit);
+            found += search(depth + 1, limit - found, random);
+            if (keep && found > 0)
+                return found;
+            remove(pos, bit);
+            backtracks++;
+            if (found >= limit || aborted)
+                return found;
+        }
+        return found;
+    }
+
+    private static int randomBit(int mask, Random random) {
+        for (int skip = random.nextInt(Integer.bitCount(mask)); skip > 0; skip--)
+            mask &= mask - 1;
+        return mask & -mask;
+    }
+
+    private boolean onlyPlace(int pos, int bit) {
+        int r = rowOf[pos], c = colOf[pos];
+        boolean row = true, col = true, square = true;
+        int top = (r / box) * box, left = (c / box) * box;
+        for (int k = 0; k < size; k++) {
+            if (row && canTake(r * size + k, pos, bit))
+                row = false;
+            if (col && canTake(k * size + c, pos, bit))
+                col = false;
+            if (square && canTake((top + k / box) * size + left + k % box, pos, bit))
+                square = false;
+        }
+        return row || col || square;
+    }
+
+    private boolean canTake(int i, int pos, int bit) {
+        return i != pos && cells[i] == 0 && (used(i) & bit) == 0;
+    }
+
+    private int used(int pos) {
+        return rows[rowOf[pos]] | cols[colOf[pos]] | boxes[boxOf[pos]];
+    }
+
+    private void place(int pos, int bit) {
+        cells[pos] = Integer.numberOfTrailingZeros(bit) + 1;
+        rows[rowOf[pos]] |= bit;
+        cols[colOf[pos]] |= bit;
+        boxes[boxOf[pos]] |= bit;
+    }
+
+    private void remove(int pos, int bit) {
+        cells[pos] = 0;
+        rows[rowOf[pos]] &= ~bit;
+        cols[colOf[pos]] &= ~bit;
+        boxes[boxOf[pos]] &= ~bit;
+    }
+}
@@ -0,0 +1,56 @@
+package com.rarid.sudoku.generator;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+// Enumerates the solutions of a puzzle of any supported size one at a time,
+// each computed only when next() asks for it. The search is a
+// ResumableSolver, which between two calls simply waits where it found the
+// last solution. Whatever the number of solutions, the iterator holds one
+// board and the search stack, and a caller that stops asking pays for no
+// more search. The order is the deterministic one of SizedBoard, fewest
+// candidates first.
+//
+// A puzzle whose clues conflict has no solutions.
+public final class SolutionIterator implements Iterator<int[][]> {
+    private final ResumableSolver solver;
+    private final int limit;
+    private int returned;
+    // The solver holds a solution next() has not handed out yet
+    private boolean ready;
+
+    public SolutionIterator(int[][] puzzle) {
+        this(puzzle, Integer.MAX_VALUE);
+    }
+
+    // Stops after limit solutions
+    public SolutionIterator(int[][] puzzle, int limit) {
+        solver = new ResumableSolver(puzzle);
+        this.limit = limit;
+    }
+
+    // For a for-each loop over the solutions, break ends the search
+    public static Iterable<int[][]> of(int[][] puzzle, int limit) {
+        return () -> new SolutionIterator(puzzle, limit);
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (!ready && returned < limit && !solver.isDone())
+            ready = solver.run(Long.MAX_VALUE) == ResumableSolver.FOUND;
+        return ready;
+    }
+
+    // A new grid on every call, the caller may keep or change it
+    @Override
+    public int[][] next() {
+        if (!hasNext())
+            throw new NoSuchElementException();
+        ready = false;
+        returned++;
+        int size = solver.size();
+        int[][] solution = new int[size][size];
+        solver.store(solution);
+        return solution;
+    }
+}
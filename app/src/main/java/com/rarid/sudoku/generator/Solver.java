@@ -0,0 +1,24 @@
+package com.rarid.sudoku.generator;
+
+// A 9x9 solving engine. Implementations are stateless and safe to share
+// between threads, every call works on its own copy of the board. Boards of
+// other sizes are handled by SizedBoard, see SudokuGenerator.countSolutions.
+//
+// Engines are looked up by name in Solvers, which also holds the reference
+// engine every other one is checked against.
+public interface Solver {
+    String name();
+
+    // The solution of the puzzle, or null when it has none. When there are
+    // several the engine returns one of them, always the same one.
+    int[][] solve(int[][] puzzle);
+
+    // Counts solutions up to limit, 0 for a board whose clues conflict. The
+    // nodes, backtracks and time of every count go to the calling thread's
+    // GeneratorMetrics.
+    int countSolutions(int[][] puzzle, int limit);
+
+    default boolean isUnique(int[][] puzzle) {
+        return countSolutions(puzzle, 2) == 1;
+    }
+}
@@ -0,0 +1,176 @@
+package com.rarid.sudoku.generator;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+// Differential check of the solving engines. Builds a seeded corpus of
+// unique puzzles of every difficulty, puzzles with several solutions and
+// puzzles with none, runs every engine over it and compares each answer with
+// the reference engine. Prints the time of every engine relative to the
+// reference, with the search effort of its solution counts as recorded in
+// GeneratorMetrics. An engine that disagrees is reported as failed instead of
+// timed, the others are still timed, and the exit status is then 1.
+//
+// Usage: SolverHarness [--count N] [--seed N] [--engines a,b,...]
+public final class SolverHarness {
+    private static final int DEFAULT_COUNT = 3000;
+    private static final long DEFAULT_SEED = 20240601L;
+    private static final String[] DIFFICULTIES = { "easy", "medium", "hard" };
+
+    // Runs over the corpus per engine, the fastest one is reported so a
+    // slow first run while the JIT warms up does not count
+    private static final int ROUNDS = 3;
+
+    private SolverHarness() {
+    }
+
+    public static void main(String[] args) {
+        int count = DEFAULT_COUNT;
+        long seed = DEFAULT_SEED;
+        List<String> engines = Solvers.names();
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            switch (args[i]) {
+                case "--count":
+                    count = Integer.parseInt(args[i + 1]);
+                    break;
+                case "--seed":
+                    seed = Long.parseLong(args[i + 1]);
+                    break;
+                case "--engines":
+                    engines = new ArrayList<>();
+                    for (String name : args[i + 1].split(","))
+                        engines.add(Solvers.get(name.trim()).name());
+                    break;
+                default:
+                    System.err.println("Unknown option " + args[i]);
+                    System.exit(2);
+            }
+        }
+
+        System.out.println("Building " + count + " puzzles from seed " + seed);
+        int[][][] puzzles = corpus(count, new Random(seed));
+        Solver reference = Solvers.get(Solvers.REFERENCE);
+        int[] counts = new int[count];
+        int[][][] solutions = new int[count][][];
+        for (int i = 0; i < count; i++) {
+            counts[i] = reference.countSolutions(puzzles[i], 2);
+            solutions[i] = reference.solve(puzzles[i]);
+        }
+
+        long referenceNanos = 0;
+        List<String> failures = new ArrayList<>();
+        // Best time per engine, 0 for one that failed
+        long[] times = new long[engines.size()];
+        int[] wrong = new int[engines.size()];
+        GeneratorMetrics[] effort = new GeneratorMetrics[engines.size()];
+        for (int k = 0; k < engines.size(); k++) {
+            String name = engines.get(k);
+            Solver solver = Solvers.get(name);
+            long best = Long.MAX_VALUE;
+            GeneratorMetrics before = GeneratorMetrics.current().snapshot();
+            // A wrong answer ends the rounds of this engine only, timing it
+            // further would tell nothing
+            for (int round = 0; round < ROUNDS && wrong[k] == 0; round++) {
+                long start = System.nanoTime();
+                for (int i = 0; i < count; i++) {
+                    int found = solver.countSolutions(puzzles[i], 2);
+                    int[][] solution = solver.solve(puzzles[i]);
+                    String problem = check(puzzles[i], counts[i], solutions[i], found, solution);
+                    if (problem != null) {
+                        failures.add(name + " on puzzle " + i + ": " + problem);
+                        wrong[k]++;
+                    }
+                }
+                best = Math.min(best, System.nanoTime() - start);
+            }
+            effort[k] = GeneratorMetrics.current().since(before);
+            times[k] = wrong[k] == 0 ? best : 0;
+            if (name.equals(reference.name()))
+                referenceNanos = times[k];
+        }
+
+        for (int k = 0; k < engines.size(); k++) {
+            long nanos = times[k];
+            if (nanos == 0) {
+                System.out.println(String.format("%-10s FAILED on %d of %d puzzles, not timed", engines.get(k),
+                        wrong[k], count));
+                continue;
+            }
+            String relative = referenceNanos == 0 ? ""
+                    : String.format(", %.2fx the reference", (double) referenceNanos / nanos);
+            long counted = Math.max(1, effort[k].solutionCounts());
+            String propagated = effort[k].propagations() == 0 ? ""
+                    : String.format(", %.1f propagations", (double) effort[k].propagations() / counted);
+            System.out.println(String.format(
+                    "%-10s %8.1f us per puzzle, %7.1f nodes and %7.1f backtracks%s per count%s", engines.get(k),
+                    nanos / 1000.0 / count, (double) effort[k].nodes() / counted,
+                    (double) effort[k].backtracks() / counted, propagated, relative));
+        }
+        if (!failures.isEmpty()) {
+            for (String failure : failures)
+                System.out.println("FAIL " + failure);
+            System.exit(1);
+        }
+        System.out.println("All engines agree on " + count + " puzzles");
+    }
+
+    // Null when the engine's answer matches the reference. Unique puzzles
+    // must give the reference solution, puzzles with several solutions any
+    // valid completion of the clues.
+    private static String check(int[][] puzzle, int expectedCount, int[][] expected, int count,
+            int[][] solution) {
+        if (count != expectedCount)
+            return "counted " + count + " solutions, expected " + expectedCount;
+        if (expectedCount == 0)
+            return solution == null ? null : "solved a puzzle without solution";
+        if (solution == null)
+            return "found no solution";
+        if (expectedCount == 1)
+            return Arrays.deepEquals(solution, expected) ? null : "solution differs";
+        return completes(puzzle, solution) ? null : "invalid solution";
+    }
+
+    private static boolean completes(int[][] puzzle, int[][] solution) {
+        BitboardSolver check = new BitboardSolver();
+        if (!check.load(solution))
+            return false;
+        for (int r = 0; r < 9; r++)
+            for (int c = 0; c < 9; c++)
+                if (solution[r][c] == 0 || (puzzle[r][c] != 0 && puzzle[r][c] != solution[r][c]))
+                    return false;
+        return true;
+    }
+
+    // Mostly unique puzzles, every eighth one with a few extra blanks so it
+    // has several solutions and every sixteenth one with a clue changed so it
+    // usually has none
+    private static int[][][] corpus(int count, Random random) {
+        int[][][] puzzles = new int[count][][];
+        for (int i = 0; i < count; i++) {
+            int[][] solution = SudokuGenerator.generateFullSolution(random);
+            int[][] puzzle = SudokuGenerator.generatePuzzle(solution, DIFFICULTIES[i % DIFFICULTIES.length],
+                    random);
+            if (i % 16 == 15) {
+                int pos = clue(puzzle, random);
+                puzzle[pos / 9][pos % 9] = puzzle[pos / 9][pos % 9] % 9 + 1;
+            } else if (i % 8 == 7) {
+                for (int k = 0; k < 4; k++) {
+                    int pos = clue(puzzle, random);
+                    puzzle[pos / 9][pos % 9] = 0;
+                }
+            }
+            puzzles[i] = puzzle;
+        }
+        return puzzles;
+    }
+
+    private static int clue(int[][] puzzle, Random random) {
+        while (true) {
+            int pos = random.nextInt(81);
+            if (puzzle[pos / 9][pos % 9] != 0)
+                return pos;
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package com.rarid.sudoku.generator;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Registry of the solving engines by name. The backtracker is the reference
+// implementation: it is the simplest and slowest, and SolverHarness checks
+// every other engine against it before one becomes the default.
+public final class Solvers {
+    public static final String BACKTRACK = "backtrack";
+    public static final String DLX = "dlx";
+    public static final String MRV = "mrv";
+    public static final String PROPAGATE = "propagate";
+
+    public static final String REFERENCE = BACKTRACK;
+    public static final String DEFAULT = MRV;
+
+    private static final Map<String, Solver> ENGINES = new LinkedHashMap<>();
+
+    static {
+        register(new BacktrackEngine());
+        register(new DlxEngine());
+        register(new MrvEngine());
+        register(new PropagatingEngine());
+    }
+
+    private Solvers() {
+    }
+
+    private static void register(Solver solver) {
+        ENGINES.put(solver.name(), solver);
+    }
+
+    // The engine with the given name, throws IllegalArgumentException for an
+    // unknown one
+    public static Solver get(String name) {
+        Solver solver = ENGINES.get(name);
+        if (solver == null)
+            throw new IllegalArgumentException("Unknown solver " + name + ", expected one of " + names());
+        return solver;
+    }
+
+    public static List<String> names() {
+        return Collections.unmodifiableList(Arrays.asList(ENGINES.keySet().toArray(new String[0])));
+    }
+
+    // Adds one solution count to the calling thread's metrics
+    private static int recordCheck(int count, long nodes, long backtracks, long start) {
+        GeneratorMetrics.current().recordCheck(nodes, backtracks, System.nanoTime() - start);
+        return count;
+    }
+
+    // Row-major backtracking over bitboard masks
+    private static final class BacktrackEngine implements Solver {
+        @Override
+        public String name() {
+            return BACKTRACK;
+        }
+
+        @Override
+        public int[][] solve(int[][] puzzle) {
+            BitboardSolver solver = new BitboardSolver();
+            if (!solver.load(puzzle) || !solver.solve())
+                return null;
+            int[][] solution = new int[9][9];
+            solver.store(solution);
+            return solution;
+        }
+
+        @Override
+        public int countSolutions(int[][] puzzle, int limit) {
+            long start = System.nanoTime();
+            BitboardSolver solver = new BitboardSolver();
+            if (!solver.load(puzzle))
+                return recordCheck(0, 0, 0, start);
+            int count = solver.countSolutions(limit);
+            return recordCheck(count, solver.nodes(), solver.backtracks(), start);
+        }
+    }
+
+    // Dancing Links, the link structure is built once per thread
+    private static final class DlxEngine implements Solver {
+        private static final ThreadLocal<DlxSolver> SOLVER = new ThreadLocal<DlxSolver>() {
+            @Override
+            protected DlxSolver initialValue() {
+                return new DlxSolver();
+            }
+        };
+
+        @Override
+        public String name() {
+            return DLX;
+        }
+
+        @Override
+        public int[][] solve(int[][] puzzle) {
+            DlxSolver solver = SOLVER.get();
+            if (!solver.load(puzzle) || solver.countSolutions(1) == 0)
+                return null;
+            int[][] solution = new int[9][9];
+            solver.storeSolution(solution);
+            return solution;
+        }
+
+        @Override
+        public int countSolutions(int[][] puzzle, int limit) {
+            long start = System.nanoTime();
+            DlxSolver solver = SOLVER.get();
+            if (!solver.load(puzzle))
+                return recordCheck(0, 0, 0, start);
+            int count = solver.countSolutions(limit);
+            return recordCheck(count, solver.nodes(), solver.backtracks(), start);
+        }
+    }
+
+    // Fewest candidates first, see MrvSolver
+    private static final class MrvEngine implements Solver {
+        @Override
+        public String name() {
+            return MRV;
+        }
+
+        @Override
+        public int[][] solve(int[][] puzzle) {
+            MrvSolver solver = new MrvSolver();
+            if (!solver.load(puzzle) || !solver.solve())
+                return null;
+            int[][] solution = new int[9][9];
+            solver.store(solution);
+            return solution;
+        }
+
+        @Override
+        public int countSolutions(int[][] puzzle, int limit) {
+            long start = System.nanoTime();
+            MrvSolver solver = new MrvSolver();
+            if (!solver.load(puzzle))
+                return recordCheck(0, 0, 0, start);
+            int count = solver.countSolutions(limit);
+            return recordCheck(count, solver.nodes(), solver.backtracks(), start);
+        }
+    }
+
+    // Singles before every branch, see PropagatingSolver
+    private static final class PropagatingEngine implements Solver {
+        @Override
+        public String name() {
+            return PROPAGATE;
+        }
+
+        @Override
+        public int[][] solve(int[][] puzzle) {
+            PropagatingSolver solver = new PropagatingSolver();
+            if (!solver.load(puzzle) || !solver.solve())
+                return null;
+            int[][] solution = new int[9][9];
+            solver.store(solution);
+            return solution;
+        }
+
+        @Override
+        public int countSolutions(int[][] puzzle, int limit) {
+            long start = System.nanoTime();
+            PropagatingSolver solver = new PropagatingSolver();
+            if (!solver.load(puzzle))
+                return recordCheck(0, 0, 0, start);
+            int count = solver.countSolutions(limit);
+            GeneratorMetrics.current().recordCheck(solver.branches(), solver.backtracks(), solver.propagations(),
+                    System.nanoTime() - start);
+            return count;
+        }
+    }
+}
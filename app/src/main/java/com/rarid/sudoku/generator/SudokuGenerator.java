@@ -2,18 +2,81 @@ package com.rarid.sudoku.generator;
 
 import android.content.Context;
 
-import java.io.FileWriter;
+import java.io.File;
 import java.io.IOException;
 import java.util.*;
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
 
 import org.json.JSONArray;
 import org.json.JSONObject;
 
 public class SudokuGenerator {
+    // Binary pack output, see PuzzlePack
+    private static final String PACK = "pack";
+
+    // Where the CLI takes its solution grids from, see
+    // TransformSolutionGenerator
+    private static final String SEARCH = "search";
+    private static final String TRANSFORM = "transform";
+
+    // How many puzzles the CLI writes between flushes to disk
+    private static final int FLUSH_EVERY = 100;
+
+    // Difficulty of the puzzle of the day
+    private static final String DAILY_DIFFICULTY = "medium";
+
+    // Puzzles generated at most per request while looking for one whose
+    // logic rating fits the difficulty
+    private static final int MAX_RATING_ATTEMPTS = 20;
+
+    // Share of clues kept per difficulty on 4x4, 16x16 and 25x25 boards
+    private static final double SIZED_EASY_CLUES = 0.55;
+    private static final double SIZED_MEDIUM_CLUES = 0.50;
+    private static final double SIZED_HARD_CLUES = 0.45;
+
+    // Per-thread buffers of the generation path, reused for every puzzle so
+    // filling a grid, removing clues and rating allocate nothing once warmed
+    // up
+    private static final class Workspace {
+        final BitboardSolver filler = new BitboardSolver();
+        final ClueRemover remover = new ClueRemover();
+        final DifficultyRater rater = new DifficultyRater();
+        // The grids of the current and of the best rated attempt
+        final int[][] solution = new int[9][9];
+        final int[][] puzzle = new int[9][9];
+        final int[][] bestSolution = new int[9][9];
+        final int[][] bestPuzzle = new int[9][9];
+        final int[] cells = new int[81];
+        final GeneratorMetrics metrics = GeneratorMetrics.current();
+    }
+
+    private static final ThreadLocal<Workspace> WORKSPACE = new ThreadLocal<Workspace>() {
+        @Override
+        protected Workspace initialValue() {
+            return new Workspace();
+        }
+    };
+
+    // Engine behind countSolutions and solvePuzzle on 9x9 boards, see Solvers
+    private static volatile Solver solver = Solvers.get(Solvers.DEFAULT);
+
+    private static final String USAGE = "Usage: SudokuGenerator [--difficulty easy|medium|hard] [--count N]\n"
+            + "           [--out FILE] [--format json|ndjson|pack] [--seed N] [--threads N]\n"
+            + "           [--grids search|transform] [--solver backtrack|dlx|mrv|propagate]\n"
+            + "       SudokuGenerator --mine MAX_CLUES [--min-rating singles|locked|pairs|xwing|search]\n"
+            + "           [--count N] [--minutes N] [--out FILE] [--format ndjson|pack] [--seed N] [--threads N]\n"
+            + "Without arguments the generator asks for every setting. A seed only gives\n"
+            + "repeatable output with --threads 1. With --solver every puzzle is checked\n"
+            + "for uniqueness again by that engine before it is written.\n"
+            + "--mine searches for puzzles with at most MAX_CLUES clues until --count are\n"
+            + "found, --minutes pass or it is interrupted. Running it again on the same file\n"
+            + "continues the search.";
 
     public static void main(String[] args) {
+        if (args.length > 0)
+            System.exit(runFromFlags(args));
+
         Scanner scanner = new Scanner(System.in);
 
         System.out.println("Enter difficulty (easy, medium, hard):");
@@ -35,151 +98,386 @@ public class SudokuGenerator {
             System.out.println("Please enter a valid positive number:");
         }
 
-        List<SudokuPuzzle> puzzles = new ArrayList<>();
-        Set<String> puzzleSet = new HashSet<>(); // To track unique puzzles
+        int cores = Runtime.getRuntime().availableProcessors();
+        System.out.println("How many threads? (press Enter to use all " + cores + " cores)");
+        int threads;
+        while (true) {
+            String line = scanner.nextLine().trim();
+            if (line.isEmpty()) {
+                threads = cores;
+                break;
+            }
+            try {
+                threads = Integer.parseInt(line);
+                if (threads > 0)
+                    break;
+            } catch (NumberFormatException ignored) {
+            }
+            System.out.println("Please enter a valid positive number:");
+        }
 
-        int generated = 0;
-        while (generated < count) {
-            int[][] solution = generateFullSolution();
-            int[][] puzzle = generatePuzzle(solution, difficulty);
+        System.out.println("Output format (json, ndjson, pack)? (press Enter for json)");
+        String format = scanner.nextLine().trim().toLowerCase();
+        while (!format.isEmpty() && !format.equals(PuzzleWriter.JSON) && !format.equals(PuzzleWriter.NDJSON)
+                && !format.equals(PACK)) {
+            System.out.println("Invalid format. Please enter json, ndjson or pack:");
+            format = scanner.nextLine().trim().toLowerCase();
+        }
+        if (format.isEmpty())
+            format = PuzzleWriter.JSON;
+
+        System.out.println("Solution grids (search, transform)? (press Enter for search)");
+        String grids = scanner.nextLine().trim().toLowerCase();
+        while (!grids.isEmpty() && !grids.equals(SEARCH) && !grids.equals(TRANSFORM)) {
+            System.out.println("Invalid choice. Please enter search or transform:");
+            grids = scanner.nextLine().trim().toLowerCase();
+        }
 
-            String puzzleKey = Arrays.deepToString(puzzle);
-            if (!puzzleSet.contains(puzzleKey)) {
-                puzzles.add(new SudokuPuzzle(puzzle, solution));
-                puzzleSet.add(puzzleKey);
-                generated++;
+        runBatch(difficulty, count, threads, format, new File(difficulty + "." + format), grids.equals(TRANSFORM),
+                null, null);
+    }
+
+    // Non-interactive entry point for scripts, returns the exit status
+    private static int runFromFlags(String[] args) {
+        String difficulty = "easy";
+        int count = 1;
+        int threads = Runtime.getRuntime().availableProcessors();
+        String format = PuzzleWriter.JSON;
+        String out = null;
+        Long seed = null;
+        String grids = SEARCH;
+        Solver verifier = null;
+        Integer mineClues = null;
+        int minRating = 0;
+        long minutes = 0;
+        boolean countGiven = false;
+        try {
+            for (int i = 0; i < args.length; i++) {
+                String flag = args[i];
+                String value;
+                int eq = flag.indexOf('=');
+                if (eq >= 0) {
+                    value = flag.substring(eq + 1);
+                    flag = flag.substring(0, eq);
+                } else if (flag.equals("--help") || flag.equals("-h")) {
+                    System.out.println(USAGE);
+                    return 0;
+                } else if (i + 1 < args.length) {
+                    value = args[++i];
+                } else {
+                    throw new IllegalArgumentException("Missing value for " + flag);
+                }
+                switch (flag) {
+                    case "--difficulty":
+                        difficulty = value.toLowerCase();
+                        if (!difficulty.equals("easy") && !difficulty.equals("medium") && !difficulty.equals("hard"))
+                            throw new IllegalArgumentException("Unknown difficulty " + value);
+                        break;
+                    case "--count":
+                        count = positive(flag, value);
+                        countGiven = true;
+                        break;
+                    case "--threads":
+                        threads = positive(flag, value);
+                        break;
+                    case "--format":
+                        format = value.toLowerCase();
+                        if (!format.equals(PuzzleWriter.JSON) && !format.equals(PuzzleWriter.NDJSON)
+                                && !format.equals(PACK))
+                            throw new IllegalArgumentException("Unknown format " + value);
+                        break;
+                    case "--out":
+                        out = value;
+                        break;
+                    case "--seed":
+                        seed = number(flag, value);
+                        break;
+                    case "--grids":
+                        grids = value.toLowerCase();
+                        if (!grids.equals(SEARCH) && !grids.equals(TRANSFORM))
+                            throw new IllegalArgumentException("Unknown grid source " + value);
+                        break;
+                    case "--solver":
+                        verifier = Solvers.get(value.toLowerCase());
+                        break;
+                    case "--mine":
+                        mineClues = positive(flag, value);
+                        if (mineClues < 17 || mineClues > 81)
+                            throw new IllegalArgumentException("--mine expects a clue count from 17 to 81");
+                        break;
+                    case "--min-rating":
+                        minRating = rating(value.toLowerCase());
+                        break;
+                    case "--minutes":
+                        minutes = positive(flag, value);
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Unknown option " + flag);
+                }
             }
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println(USAGE);
+            return 2;
+        }
+        if (mineClues != null) {
+            // Only line-delimited files and packs can be resumed
+            if (format.equals(PuzzleWriter.JSON))
+                format = PuzzleWriter.NDJSON;
+            File file = new File(out != null ? out : "mined-" + mineClues + "." + format);
+            return runMine(mineClues, minRating, countGiven ? count : Integer.MAX_VALUE, threads, format, file,
+                    minutes, seed) ? 0 : 1;
         }
+        File file = new File(out != null ? out : difficulty + "." + format);
+        if (verifier != null)
+            setSolver(verifier.name());
+        return runBatch(difficulty, count, threads, format, file, grids.equals(TRANSFORM), seed, verifier) ? 0 : 1;
+    }
 
-        String fileName = difficulty + ".json";
-        Gson gson = new GsonBuilder().setPrettyPrinting().create();
-        try (FileWriter writer = new FileWriter(fileName)) {
-            gson.toJson(puzzles, writer);
-            System.out.println("Sudokus generated and saved to " + fileName);
-        } catch (IOException e) {
-            System.out.println("Error writing to file: " + e.getMessage());
+    private static int rating(String name) {
+        switch (name) {
+            case "singles":
+                return DifficultyRater.SINGLES;
+            case "locked":
+                return DifficultyRater.LOCKED_CANDIDATES;
+            case "pairs":
+                return DifficultyRater.PAIRS;
+            case "xwing":
+                return DifficultyRater.X_WING;
+            case "search":
+                return DifficultyRater.NEEDS_SEARCH;
+            default:
+                throw new IllegalArgumentException("Unknown rating " + name);
         }
     }
 
-    // Represents a Sudoku puzzle and its solution
-    static class SudokuPuzzle {
-        int[][] puzzle;
-        int[][] solution;
+    private static int positive(String flag, String value) {
+        long n = number(flag, value);
+        if (n <= 0 || n > Integer.MAX_VALUE)
+            throw new IllegalArgumentException(flag + " must be a positive number");
+        return (int) n;
+    }
 
-        SudokuPuzzle(int[][] puzzle, int[][] solution) {
-            this.puzzle = puzzle;
-            this.solution = solution;
+    private static long number(String flag, String value) {
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(flag + " expects a number, got " + value);
         }
     }
 
-    // Generates a fully filled valid Sudoku grid
-    private static int[][] generateFullSolution() {
-        int[][] board = new int[9][9];
-        fillBoard(board, 0, 0);
-        return board;
+    // Generates the batch into file and prints the report, returns false
+    // when the file could not be written. A verifier rechecks every puzzle.
+    private static boolean runBatch(String difficulty, int count, int threads, String format, File file,
+            boolean transformGrids, Long seed, Solver verifier) {
+        BatchGenerator batch = new BatchGenerator(difficulty, count, threads, transformGrids, seed);
+        if (verifier != null)
+            batch.verifyWith(verifier);
+        try {
+            // Line-delimited files and packs can be continued where a previous
+            // run stopped
+            boolean resume = !format.equals(PuzzleWriter.JSON) && file.exists();
+            if (resume) {
+                int existing = format.equals(PACK) ? PuzzlePackWriter.resume(file, batch)
+                        : PuzzleWriter.resume(file, batch);
+                System.out.println("Resuming " + file + ": " + existing + " puzzles already written");
+            }
+            try (PuzzleOutput writer = format.equals(PACK)
+                    ? new PuzzlePackWriter(file, true, resume, FLUSH_EVERY)
+                    : new PuzzleWriter(file, format, resume, FLUSH_EVERY)) {
+                batch.run(writer);
+            }
+            batch.printReport(System.out);
+            System.out.println("Sudokus generated and saved to " + file);
+            return true;
+        } catch (IOException e) {
+            System.out.println("Error writing to file: " + e.getMessage());
+            return false;
+        }
     }
 
-    private static boolean fillBoard(int[][] board, int row, int col) {
-        if (row == 9)
+    // Mines into file and prints the report, returns false when the file or
+    // the checkpoint could not be read or written. Ctrl-C ends the run
+    // cleanly: the hook stops the miner and waits until the checkpoint is
+    // saved and the report printed.
+    private static boolean runMine(int maxClues, int minRating, int count, int threads, String format, File file,
+            long minutes, Long seed) {
+        PuzzleMiner miner = new PuzzleMiner(maxClues, minRating, count, threads, seed);
+        File checkpoint = new File(file.getPath() + ".progress");
+        CountDownLatch finished = new CountDownLatch(1);
+        Thread hook = new Thread(() -> {
+            miner.stop();
+            try {
+                finished.await();
+            } catch (InterruptedException ignored) {
+            }
+        });
+        Runtime.getRuntime().addShutdownHook(hook);
+        try {
+            boolean resume = file.exists();
+            if (resume) {
+                int existing = format.equals(PACK) ? PuzzlePackWriter.resume(file, miner)
+                        : PuzzleWriter.resume(file, miner);
+                if (checkpoint.exists())
+                    miner.loadCheckpoint(checkpoint);
+                System.out.println("Resuming " + file + ": " + existing + " puzzles already found");
+            }
+            System.out.println("Mining puzzles with at most " + maxClues + " clues on " + threads + " threads,"
+                    + " progress every " + PuzzleMiner.REPORT_SECONDS + " s");
+            long maxNanos = minutes > 0 ? minutes * 60_000_000_000L : Long.MAX_VALUE;
+            // Found puzzles are rare, each one is flushed at once
+            try (PuzzleOutput writer = format.equals(PACK)
+                    ? new PuzzlePackWriter(file, true, resume, 1)
+                    : new PuzzleWriter(file, format, resume, 1)) {
+                miner.run(writer, checkpoint, maxNanos, System.out);
+            }
+            miner.printReport(System.out);
+            System.out.println("Puzzles saved to " + file + ", progress to " + checkpoint);
             return true;
-        if (col == 9)
-            return fillBoard(board, row + 1, 0);
-
-        List<Integer> nums = new ArrayList<>();
-        for (int i = 1; i <= 9; i++)
-            nums.add(i);
-        Collections.shuffle(nums);
-
-        for (int num : nums) {
-            if (isSafe(board, row, col, num)) {
-                board[row][col] = num;
-                if (fillBoard(board, row, col + 1))
-                    return true;
-                board[row][col] = 0;
+        } catch (IOException e) {
+            System.out.println("Error: " + e.getMessage());
+            return false;
+        } finally {
+            finished.countDown();
+            try {
+                Runtime.getRuntime().removeShutdownHook(hook);
+            } catch (IllegalStateException ignored) {
+                // Already shutting down
             }
         }
-        return false;
     }
 
-    private static boolean isSafe(int[][] board, int row, int col, int num) {
-        for (int i = 0; i < 9; i++) {
-            if (board[row][i] == num || board[i][col] == num)
-                return false;
-        }
-        int boxRow = row - row % 3, boxCol = col - col % 3;
-        for (int i = 0; i < 3; i++)
-            for (int j = 0; j < 3; j++)
-                if (board[boxRow + i][boxCol + j] == num)
-                    return false;
+    // Generates a fully filled valid Sudoku grid
+    static int[][] generateFullSolution(Random random) {
+        int[][] board = new int[9][9];
+        fillBoard(board, random);
+        return board;
+    }
+
+    // Fills the empty cells of the board with a random valid completion
+    static boolean fillBoard(int[][] board, Random random) {
+        long start = System.nanoTime();
+        Workspace workspace = WORKSPACE.get();
+        BitboardSolver solver = workspace.filler;
+        if (!solver.load(board))
+            return false;
+        boolean filled = solver.fill(random);
+        workspace.metrics.recordFill(solver.nodes(), solver.backtracks(), System.nanoTime() - start);
+        if (!filled)
+            return false;
+        solver.store(board);
         return true;
     }
 
     // Removes numbers from a full solution to create a puzzle of the given
     // difficulty
-    private static int[][] generatePuzzle(int[][] solution, String difficulty) {
+    static int[][] generatePuzzle(int[][] solution, String difficulty, Random random) {
+        return generatePuzzle(solution, difficulty, random, Long.MAX_VALUE);
+    }
+
+    // Stops removing numbers once the budget runs out or the thread is
+    // interrupted. Every removal keeps the solution unique, so the puzzle
+    // returned then is still valid, it just has a few more clues.
+    static int[][] generatePuzzle(int[][] solution, String difficulty, Random random, long budgetNanos) {
         int[][] puzzle = new int[9][9];
-        for (int i = 0; i < 9; i++)
-            puzzle[i] = Arrays.copyOf(solution[i], 9);
+        generatePuzzle(solution, difficulty, random, budgetNanos, puzzle);
+        return puzzle;
+    }
+
+    // Writes the puzzle into the given board instead of a new one, the path
+    // JMH checks for allocations, see FillBoardBenchmark
+    static void generatePuzzle(int[][] solution, String difficulty, Random random, long budgetNanos,
+            int[][] puzzle) {
+        generatePuzzle(solution, difficulty, random, budgetNanos, puzzle, null, 0);
+    }
 
+    // Same, and with a rater keeps removing clues in the same order while the
+    // puzzle rates below minRating, so a grid that is still too easy at the
+    // clue target gets its chance at the difficulty. Returns the rating of
+    // the puzzle, 0 without a rater.
+    private static int generatePuzzle(int[][] solution, String difficulty, Random random, long budgetNanos,
+            int[][] puzzle, DifficultyRater rater, int minRating) {
+        long start = System.nanoTime();
+        Workspace workspace = WORKSPACE.get();
         int clues;
         switch (difficulty) {
             case "easy":
-                clues = 36 + new Random().nextInt(6);
+                clues = 36 + random.nextInt(6);
                 break; // 36-41 clues
             case "medium":
-                clues = 32 + new Random().nextInt(5);
+                clues = 32 + random.nextInt(5);
                 break; // 32-36 clues
             case "hard":
-                clues = 26 + new Random().nextInt(6);
+                clues = 26 + random.nextInt(6);
                 break; // 26-31 clues
             default:
                 clues = 36;
         }
 
-        List<int[]> cells = new ArrayList<>();
-        for (int i = 0; i < 9; i++)
-            for (int j = 0; j < 9; j++)
-                cells.add(new int[] { i, j });
-        Collections.shuffle(cells);
+        // Same draws as Collections.shuffle, so a seeded Random still gives
+        // the same puzzle as before
+        int[] cells = workspace.cells;
+        for (int i = 0; i < 81; i++)
+            cells[i] = i;
+        for (int i = 80; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int tmp = cells[i];
+            cells[i] = cells[j];
+            cells[j] = tmp;
+        }
 
+        ClueRemover remover = workspace.remover;
+        remover.reset(solution);
         int removed = 81 - clues;
-        for (int k = 0; k < removed; k++) {
-            int[] cell = cells.get(k);
-            int backup = puzzle[cell[0]][cell[1]];
-            puzzle[cell[0]][cell[1]] = 0;
-            if (!hasUniqueSolution(puzzle)) {
-                puzzle[cell[0]][cell[1]] = backup; // revert if not unique
+        int k = 0;
+        for (; k < removed; k++) {
+            if (System.nanoTime() - start > budgetNanos || Thread.currentThread().isInterrupted())
+                break;
+            remover.tryRemove(cells[k]);
+        }
+        remover.store(puzzle);
+        int rating = 0;
+        if (rater != null) {
+            rating = rate(rater, puzzle);
+            for (; k < 81 && rating < minRating; k++) {
+                if (System.nanoTime() - start > budgetNanos || Thread.currentThread().isInterrupted())
+                    break;
+                if (remover.tryRemove(cells[k])) {
+                    remover.store(puzzle);
+                    rating = rate(rater, puzzle);
+                }
             }
         }
-        return puzzle;
+        remover.recordTo(workspace.metrics, System.nanoTime() - start);
+        return rating;
     }
 
-    // Checks if a puzzle has a unique solution
-    private static boolean hasUniqueSolution(int[][] puzzle) {
-        return countSolutions(puzzle, 0, 0, 0) == 1;
+    // Picks the engine used from now on by countSolutions and solvePuzzle,
+    // throws IllegalArgumentException for an unknown name
+    public static void setSolver(String name) {
+        solver = Solvers.get(name);
     }
 
-    private static int countSolutions(int[][] board, int row, int col, int count) {
-        if (row == 9)
-            return count + 1;
-        if (col == 9)
-            return countSolutions(board, row + 1, 0, count);
+    public static Solver getSolver() {
+        return solver;
+    }
 
-        if (board[row][col] != 0)
-            return countSolutions(board, row, col + 1, count);
+    // Counts solutions of an arbitrary board up to the given limit. Clue
+    // removal no longer needs full counts, see ClueRemover.
+    // The 9x9 engines add their search effort to the thread's metrics
+    // themselves, see Solvers. Other sizes go to the parallel count, a
+    // sparse 25x25 puzzle takes seconds to check on one core.
+    static int countSolutions(int[][] board, int limit) {
+        if (board.length == 9)
+            return solver.countSolutions(board, limit);
+        return countSolutionsParallel(board, limit);
+    }
 
-        for (int num = 1; num <= 9; num++) {
-            if (isSafe(board, row, col, num)) {
-                board[row][col] = num;
-                count = countSolutions(board, row, col + 1, count);
-                if (count > 1) {
-                    board[row][col] = 0;
-                    return count; // early exit
-                }
-                board[row][col] = 0;
-            }
-        }
-        return count;
+    // Same count on all cores, worth it for sparse puzzles and boards bigger
+    // than 9x9. Puzzles that are quick to check stay on the calling thread,
+    // see ParallelCounter.
+    public static int countSolutionsParallel(int[][] board, int limit) {
+        return new ParallelCounter(ForkJoinPool.commonPool()).countSolutions(board, limit);
     }
 
     public static class PuzzleWithSolution {
@@ -192,19 +490,196 @@ public class SudokuGenerator {
     }
 
     public static PuzzleWithSolution generatePuzzleAndSolutionForDifficulty(String difficulty) {
-        int[][] solution = generateFullSolution();
-        int[][] puzzle = generatePuzzle(solution, difficulty);
-        return new PuzzleWithSolution(puzzle, solution);
+        return generatePuzzleAndSolutionForDifficulty(difficulty, Long.MAX_VALUE);
     }
 
-    public static int[][] solvePuzzle(int[][] puzzle) {
-        int[][] copy = new int[9][9];
-        for (int i = 0; i < 9; i++)
-            copy[i] = Arrays.copyOf(puzzle[i], 9);
-        fillBoard(copy, 0, 0);
+    // Returns the best puzzle found within the time budget. Budgets too long
+    // to count in nanoseconds mean no budget.
+    public static PuzzleWithSolution generatePuzzleAndSolutionForDifficulty(String difficulty, long budgetMillis) {
+        long budgetNanos = budgetMillis >= Long.MAX_VALUE / 1_000_000L ? Long.MAX_VALUE : budgetMillis * 1_000_000L;
+        return generateRated(difficulty, new Random(), budgetNanos, null);
+    }
+
+    // Always returns the same puzzle for the same difficulty and seed, which
+    // makes benchmarks and bug reports reproducible. There is no time budget,
+    // a budget would make the result depend on the speed of the device.
+    public static PuzzleWithSolution generatePuzzleAndSolutionForSeed(String difficulty, long seed) {
+        return generateRated(difficulty, new Random(seed), Long.MAX_VALUE, null);
+    }
+
+    // The puzzle of the day, the same on every device for a given date. Month
+    // runs from 1 to 12.
+    public static PuzzleWithSolution generateDailyPuzzle(int year, int month, int day) {
+        return generatePuzzleAndSolutionForSeed(DAILY_DIFFICULTY, dailySeed(year, month, day));
+    }
+
+    // Mixes the date so neighbouring days get unrelated seeds, Random would
+    // otherwise start nearby seeds with similar draws
+    static long dailySeed(int year, int month, int day) {
+        long h = year * 10000L + month * 100L + day;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    // Generates puzzles until one rates within the difficulty's range, see
+    // DifficultyRater.minRating and maxRating. After MAX_RATING_ATTEMPTS, or
+    // once the budget runs out, the best attempt is kept even if it rated
+    // outside: the one closest to the range, and of equal ratings the one
+    // with more clues when too hard or fewer when too easy. An attempt is
+    // only started while the budget still covers one as long as the last, a
+    // removal pass cut short would just leave more clues. Solution grids come
+    // from the transform generator when one is given, otherwise from a
+    // backtracking fill. Attempts are made in per-thread buffers, only the
+    // puzzle returned is allocated.
+    static PuzzleWithSolution generateRated(String difficulty, Random random, long budgetNanos,
+            TransformSolutionGenerator grids) {
+        long start = System.nanoTime();
+        Workspace workspace = WORKSPACE.get();
+        int[][] solution = workspace.solution;
+        int[][] puzzle = workspace.puzzle;
+        int minRating = DifficultyRater.minRating(difficulty);
+        int maxRating = DifficultyRater.maxRating(difficulty);
+        boolean haveBest = false;
+        int bestRating = 0;
+        int bestMiss = 0;
+        int bestClues = 0;
+        long attemptNanos = 0;
+        for (int attempts = 0; attempts < MAX_RATING_ATTEMPTS; attempts++) {
+            long attemptStart = System.nanoTime();
+            long remaining = budgetNanos == Long.MAX_VALUE ? Long.MAX_VALUE
+                    : Math.max(0, budgetNanos - (attemptStart - start));
+            if (haveBest && (remaining < attemptNanos || Thread.currentThread().isInterrupted()))
+                break;
+            if (grids != null) {
+                grids.next(random, solution);
+            } else {
+                for (int[] row : solution)
+                    Arrays.fill(row, 0);
+                fillBoard(solution, random);
+            }
+            int rating = generatePuzzle(solution, difficulty, random, remaining, puzzle, workspace.rater,
+                    minRating);
+            attemptNanos = System.nanoTime() - attemptStart;
+            if (rating >= minRating && rating <= maxRating)
+                return new PuzzleWithSolution(copy(puzzle), copy(solution));
+            int miss = rating < minRating ? minRating - rating : rating - maxRating;
+            int clues = clues(puzzle);
+            if (!haveBest || miss < bestMiss || (rating == bestRating
+                    && (rating > maxRating ? clues > bestClues : clues < bestClues))) {
+                copyInto(solution, workspace.bestSolution);
+                copyInto(puzzle, workspace.bestPuzzle);
+                haveBest = true;
+                bestRating = rating;
+                bestMiss = miss;
+                bestClues = clues;
+            }
+        }
+        return new PuzzleWithSolution(copy(workspace.bestPuzzle), copy(workspace.bestSolution));
+    }
+
+    private static int[][] copy(int[][] grid) {
+        int[][] copy = new int[grid.length][grid.length];
+        copyInto(grid, copy);
         return copy;
     }
 
+    private static void copyInto(int[][] from, int[][] to) {
+        for (int r = 0; r < from.length; r++)
+            System.arraycopy(from[r], 0, to[r], 0, from[r].length);
+    }
+
+    static int clues(int[][] puzzle) {
+        int n = 0;
+        for (int[] row : puzzle)
+            for (int val : row)
+                if (val != 0)
+                    n++;
+        return n;
+    }
+
+    // Rates the puzzle and records the time in the thread's metrics. The
+    // check against the solution is left to DifficultyRater's self-test, a
+    // generator must not fail on it.
+    static int rate(DifficultyRater rater, int[][] puzzle) {
+        long start = System.nanoTime();
+        int rating = rater.rate(puzzle);
+        GeneratorMetrics.current().recordRating(System.nanoTime() - start);
+        return rating;
+    }
+
+    // Solves the puzzle with the selected engine, all of them deterministic,
+    // so a puzzle always gets the same answer. A puzzle without solution is
+    // returned as is.
+    public static int[][] solvePuzzle(int[][] puzzle) {
+        int size = puzzle.length;
+        int[][] copy = new int[size][];
+        for (int i = 0; i < size; i++)
+            copy[i] = Arrays.copyOf(puzzle[i], size);
+        if (size != 9) {
+            SizedBoard sized = new SizedBoard(size);
+            if (sized.load(copy) && sized.solve())
+                sized.store(copy);
+            return copy;
+        }
+        int[][] solution = solver.solve(copy);
+        return solution != null ? solution : copy;
+    }
+
+    // Puzzle of any supported size, 4, 9, 16 or 25 rows. 9x9 puzzles take
+    // the usual rated path, the other sizes are built by SizedBoard and get
+    // no logic rating since DifficultyRater only knows 9x9 techniques.
+    public static PuzzleWithSolution generatePuzzleAndSolution(int size, String difficulty) {
+        return generateSized(size, difficulty, new Random());
+    }
+
+    static PuzzleWithSolution generateSized(int size, String difficulty, Random random) {
+        if (size == 9)
+            return generateRated(difficulty, random, Long.MAX_VALUE, null);
+        SizedBoard board = new SizedBoard(size);
+        board.clear();
+        board.fill(random);
+        int[][] solution = new int[size][size];
+        board.store(solution);
+
+        int cellCount = size * size;
+        int[] cells = new int[cellCount];
+        for (int i = 0; i < cellCount; i++)
+            cells[i] = i;
+        for (int i = cellCount - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int tmp = cells[i];
+            cells[i] = cells[j];
+            cells[j] = tmp;
+        }
+        int target = (int) Math.ceil(cellCount * clueFraction(difficulty));
+        for (int k = 0; k < cellCount && board.clues() > target; k++) {
+            if (Thread.currentThread().isInterrupted())
+                break;
+            board.tryRemove(cells[k]);
+        }
+        int[][] puzzle = new int[size][size];
+        board.store(puzzle);
+        return new PuzzleWithSolution(puzzle, solution);
+    }
+
+    // Share of the cells kept as clues on boards other than 9x9. Bigger
+    // boards need a larger share than the 9x9 ranges to stay unique and
+    // solvable by hand.
+    private static double clueFraction(String difficulty) {
+        switch (difficulty) {
+            case "medium":
+                return SIZED_MEDIUM_CLUES;
+            case "hard":
+                return SIZED_HARD_CLUES;
+            default:
+                return SIZED_EASY_CLUES;
+        }
+    }
+
     // Save the generated puzzle and solution to user files
     public static void saveGeneratedPuzzle(Context context, String difficulty, int[][] puzzle, int[][] solution) {
         try {
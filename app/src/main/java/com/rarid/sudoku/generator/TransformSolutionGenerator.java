@@ -0,0 +1,139 @@
+package com.rarid.sudoku.generator;
+
+import java.util.Random;
+
+// Produces full solution grids by applying random validity preserving
+// transforms to a small bank of seed grids: digit relabeling, row swaps
+// inside a band, band swaps, column swaps inside a stack, stack swaps and
+// transposition. A transform costs a handful of array writes instead of a
+// backtracking fill.
+//
+// Transforms never leave the equivalence class of their seed, so to keep the
+// output from settling on a few classes one seed is replaced by a fresh
+// backtracking fill every REFRESH_EVERY grids.
+//
+// Not thread safe, every worker needs its own instance.
+final class TransformSolutionGenerator {
+    static final int DEFAULT_SEEDS = 64;
+    static final int REFRESH_EVERY = 64;
+
+    private final int[][] seeds;
+    private final int[] rows = new int[9];
+    private final int[] cols = new int[9];
+    private final int[] digits = new int[10];
+    private int generated;
+
+    TransformSolutionGenerator(int seedCount, Random random) {
+        seeds = new int[seedCount][];
+        for (int i = 0; i < seedCount; i++)
+            seeds[i] = flatten(SudokuGenerator.generateFullSolution(random));
+    }
+
+    int[][] next(Random random) {
+        int[][] grid = new int[9][9];
+        next(random, grid);
+        return grid;
+    }
+
+    // Writes the next grid into an existing 9x9 array. Allocating the array
+    // costs more than the transform itself, so hot loops should reuse one.
+    void next(Random random, int[][] grid) {
+        if (++generated % REFRESH_EVERY == 0)
+            seeds[random.nextInt(seeds.length)] = flatten(SudokuGenerator.generateFullSolution(random));
+
+        // One random draw per permutation, java.util.Random is the most
+        // expensive part of a transform
+        int[] seed = seeds[random.nextInt(seeds.length)];
+        linePermutation(rows, random.nextInt(1296));
+        linePermutation(cols, random.nextInt(1296));
+        digitPermutation(random.nextInt(362880));
+
+        if (random.nextBoolean()) {
+            for (int r = 0; r < 9; r++)
+                for (int c = 0; c < 9; c++)
+                    grid[r][c] = digits[seed[rows[r] * 9 + cols[c]]];
+        } else {
+            for (int r = 0; r < 9; r++)
+                for (int c = 0; c < 9; c++)
+                    grid[r][c] = digits[seed[cols[c] * 9 + rows[r]]];
+        }
+    }
+
+    // The k-th of the 1296 orders of 9 lines that keep bands (or stacks)
+    // together, k read as four base 6 digits
+    private static void linePermutation(int[] perm, int k) {
+        int bands = k % 6;
+        for (int b = 0; b < 3; b++) {
+            k /= 6;
+            int band = permutationOf3(bands, b);
+            for (int i = 0; i < 3; i++)
+                perm[b * 3 + i] = band * 3 + permutationOf3(k % 6, i);
+        }
+    }
+
+    // The k-th of the 9! relabelings of the digits, k read in the factorial
+    // number system as a Fisher-Yates shuffle
+    private void digitPermutation(int k) {
+        digits[0] = 0;
+        for (int d = 1; d <= 9; d++)
+            digits[d] = d;
+        for (int d = 9; d > 1; d--) {
+            int j = 1 + k % d;
+            k /= d;
+            int tmp = digits[d];
+            digits[d] = digits[j];
+            digits[j] = tmp;
+        }
+    }
+
+    // Element i of the k-th of the six orders of 0, 1, 2
+    private static int permutationOf3(int k, int i) {
+        int first = k / 2;
+        if (i == 0)
+            return first;
+        int second = (first + 1 + k % 2) % 3;
+        return i == 1 ? second : 3 - first - second;
+    }
+
+    private static int[] flatten(int[][] grid) {
+        int[] flat = new int[81];
+        for (int i = 0; i < 81; i++)
+            flat[i] = grid[i / 9][i % 9];
+        return flat;
+    }
+
+    // Compares the transform generator against the backtracking fill
+    public static void main(String[] args) {
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        Random random = new Random();
+        TransformSolutionGenerator generator = new TransformSolutionGenerator(DEFAULT_SEEDS, random);
+
+        // Warm up both paths before timing
+        for (int i = 0; i < n / 10; i++) {
+            SudokuGenerator.generateFullSolution(random);
+            generator.next(random);
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < n; i++)
+            SudokuGenerator.generateFullSolution(random);
+        double fill = (System.nanoTime() - start) / (double) n;
+
+        start = System.nanoTime();
+        for (int i = 0; i < n; i++)
+            generator.next(random);
+        double transform = (System.nanoTime() - start) / (double) n;
+
+        int[][] grid = new int[9][9];
+        start = System.nanoTime();
+        for (int i = 0; i < n; i++)
+            generator.next(random, grid);
+        double reused = (System.nanoTime() - start) / (double) n;
+
+        System.out.printf("backtracking fill:          %.0f ns per grid%n", fill);
+        System.out.printf("transform:                  %.0f ns per grid (%.1fx faster)%n", transform,
+                fill / transform);
+        System.out.printf("transform into reused grid: %.0f ns per grid (%.1fx faster)%n", reused,
+                fill / reused);
+    }
+}
@@ -0,0 +1,21 @@
+package com.rarid.sudoku.generator;
+
+// The 27 units of a 9x9 board, shared by the rater and the solvers that
+// treat rows, columns and boxes alike
+final class Units {
+    // UNITS[u] lists the cells of rows 0-8, columns 9-17 and boxes 18-26
+    static final int[][] UNITS = new int[27][9];
+
+    static {
+        for (int i = 0; i < 9; i++) {
+            for (int j = 0; j < 9; j++) {
+                UNITS[i][j] = i * 9 + j;
+                UNITS[9 + i][j] = j * 9 + i;
+                UNITS[18 + i][j] = ((i / 3) * 3 + j / 3) * 9 + (i % 3) * 3 + j % 3;
+            }
+        }
+    }
+
+    private Units() {
+    }
+}
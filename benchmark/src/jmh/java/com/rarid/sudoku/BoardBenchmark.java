@@ -0,0 +1,104 @@
+package com.rarid.sudoku;
+
+import com.rarid.sudoku.generator.Corpus;
+
+import org.json.JSONException;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Work done on every move of a game in progress: the error check behind
+// SudokuBoardView.checkErrors and the JSON written and read by
+// ProgressManager.saveProgress and loadProgress. The boards are corpus
+// puzzles with about half of the blanks filled in, some of them wrongly, and
+// pencil marks in the rest.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BoardBenchmark {
+    private static final long SEED = 42;
+
+    private int count;
+    private int[][][] grids;
+    private boolean[][][] clues;
+    private boolean[][][] isError;
+    private Set<Integer>[][][] pencilmarks;
+    private int[][][] solutions;
+    private String[] saved;
+    private final boolean[][] errors = new boolean[9][9];
+    private int next;
+
+    @Setup
+    @SuppressWarnings("unchecked")
+    public void setup() throws JSONException {
+        Corpus corpus = Corpus.load(null);
+        Random random = new Random(SEED);
+        count = corpus.size();
+        grids = new int[count][9][9];
+        clues = new boolean[count][9][9];
+        isError = new boolean[count][9][9];
+        pencilmarks = new Set[count][9][9];
+        solutions = new int[count][][];
+        saved = new String[count];
+        for (int k = 0; k < count; k++) {
+            int[][] puzzle = corpus.puzzle(k);
+            solutions[k] = corpus.solution(k);
+            for (int r = 0; r < 9; r++) {
+                for (int c = 0; c < 9; c++) {
+                    pencilmarks[k][r][c] = new HashSet<>();
+                    if (puzzle[r][c] != 0) {
+                        grids[k][r][c] = puzzle[r][c];
+                        clues[k][r][c] = true;
+                    } else if (random.nextBoolean()) {
+                        // One entry in five is a mistake
+                        grids[k][r][c] = random.nextInt(5) == 0 ? 1 + random.nextInt(9) : solutions[k][r][c];
+                    } else {
+                        pencilmarks[k][r][c].add(solutions[k][r][c]);
+                        pencilmarks[k][r][c].add(1 + random.nextInt(9));
+                    }
+                }
+            }
+            BoardValidator.findErrors(grids[k], clues[k], isError[k]);
+            saved[k] = encode(k);
+        }
+        next = 0;
+    }
+
+    @Benchmark
+    public boolean[][] checkErrors() {
+        int k = next++ % count;
+        BoardValidator.findErrors(grids[k], clues[k], errors);
+        return errors;
+    }
+
+    @Benchmark
+    public String saveProgress() throws JSONException {
+        return encode(next++ % count);
+    }
+
+    @Benchmark
+    public ProgressManager.ProgressData loadProgress() throws JSONException {
+        return ProgressCodec.decode(saved[next++ % count]);
+    }
+
+    private String encode(int k) throws JSONException {
+        return ProgressCodec.encode(grids[k], clues[k], pencilmarks[k], isError[k], 3, 0, solutions[k],
+                120_000L, 1_700_000_000_000L, 0L);
+    }
+}
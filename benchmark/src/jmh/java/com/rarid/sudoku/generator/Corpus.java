@@ -0,0 +1,66 @@
+package com.rarid.sudoku.generator;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+// Fixed puzzles shared by all benchmarks, read from corpus.txt. Benchmarks
+// index into the corpus in order so every run sees the same inputs.
+public final class Corpus {
+    public static final String[] DIFFICULTIES = { "easy", "medium", "hard" };
+
+    private final int[][][] puzzles;
+    private final int[][][] solutions;
+
+    private Corpus(List<int[][]> puzzles, List<int[][]> solutions) {
+        this.puzzles = puzzles.toArray(new int[0][][]);
+        this.solutions = solutions.toArray(new int[0][][]);
+    }
+
+    // Puzzles of one difficulty, or of every difficulty when null
+    public static Corpus load(String difficulty) {
+        List<int[][]> puzzles = new ArrayList<>();
+        List<int[][]> solutions = new ArrayList<>();
+        try (InputStream in = Corpus.class.getResourceAsStream("/corpus.txt")) {
+            if (in == null)
+                throw new IllegalStateException("corpus.txt is missing from the benchmark resources");
+            BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.US_ASCII));
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isEmpty() || line.startsWith("#"))
+                    continue;
+                String[] parts = line.split(" ");
+                if (difficulty != null && !parts[0].equals(difficulty))
+                    continue;
+                puzzles.add(parse(parts[1]));
+                solutions.add(parse(parts[2]));
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot read corpus.txt", e);
+        }
+        return new Corpus(puzzles, solutions);
+    }
+
+    public int size() {
+        return puzzles.length;
+    }
+
+    public int[][] puzzle(int index) {
+        return puzzles[index % puzzles.length];
+    }
+
+    public int[][] solution(int index) {
+        return solutions[index % solutions.length];
+    }
+
+    private static int[][] parse(String digits) {
+        int[][] grid = new int[9][9];
+        for (int i = 0; i < 81; i++)
+            grid[i / 9][i % 9] = digits.charAt(i) - '0';
+        return grid;
+    }
+}
@@ -0,0 +1,109 @@
+package com.rarid.sudoku.generator;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Full solution grids, from an empty board (fillBoard) and from the
+// transform generator, and whole puzzles written into reused boards. fillInto
+// and puzzleInto must report a gc.alloc.rate.norm of 0 B/op, the generation
+// path allocates nothing once its per-thread buffers exist. main runs both
+// with the GC profiler and exits with status 1 when either allocates.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FillBoardBenchmark {
+    private static final long SEED = 42;
+
+    // The profiler reports a fraction of a byte per op even for code that
+    // allocates nothing, the smallest real allocation is 16 bytes
+    private static final double ALLOCATION_NOISE_BYTES = 1.0;
+
+    private Random random;
+    private TransformSolutionGenerator transforms;
+    private final int[][] grid = new int[9][9];
+    private final int[][] puzzle = new int[9][9];
+
+    @Setup
+    public void setup() {
+        random = new Random(SEED);
+        transforms = new TransformSolutionGenerator(TransformSolutionGenerator.DEFAULT_SEEDS, random);
+    }
+
+    @Benchmark
+    public int[][] fillBoard() {
+        return SudokuGenerator.generateFullSolution(random);
+    }
+
+    @Benchmark
+    public int[][] fillInto() {
+        clear(grid);
+        SudokuGenerator.fillBoard(grid, random);
+        return grid;
+    }
+
+    @Benchmark
+    public int[][] puzzleInto() {
+        clear(grid);
+        SudokuGenerator.fillBoard(grid, random);
+        SudokuGenerator.generatePuzzle(grid, "hard", random, Long.MAX_VALUE, puzzle);
+        return puzzle;
+    }
+
+    @Benchmark
+    public int[][] transform() {
+        transforms.next(random, grid);
+        return grid;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        boolean failed = false;
+        for (RunResult run : new Runner(new OptionsBuilder()
+                .include(FillBoardBenchmark.class.getName() + "\\.(fillInto|puzzleInto)$")
+                .addProfiler(GCProfiler.class)
+                .build()).run()) {
+            String name = run.getParams().getBenchmark();
+            Result alloc = run.getSecondaryResults().get("gc.alloc.rate.norm");
+            // Older JMH versions put a middle dot before the name
+            if (alloc == null)
+                alloc = run.getSecondaryResults().get("\u00b7gc.alloc.rate.norm");
+            if (alloc == null) {
+                System.out.println("FAIL " + name + ": the GC profiler reported no allocation rate");
+                failed = true;
+            } else if (alloc.getScore() > ALLOCATION_NOISE_BYTES) {
+                System.out.printf("FAIL %s: %.1f B/op allocated%n", name, alloc.getScore());
+                failed = true;
+            } else {
+                System.out.printf("ok   %s: %.3f B/op%n", name, alloc.getScore());
+            }
+        }
+        if (failed)
+            System.exit(1);
+    }
+
+    private static void clear(int[][] board) {
+        for (int[] row : board)
+            Arrays.fill(row, 0);
+    }
+}
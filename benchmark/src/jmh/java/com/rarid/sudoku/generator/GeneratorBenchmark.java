@@ -0,0 +1,56 @@
+package com.rarid.sudoku.generator;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Solver and clue removal hot paths, per difficulty of the corpus puzzles
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GeneratorBenchmark {
+    private static final long SEED = 42;
+
+    @Param({ "easy", "medium", "hard" })
+    public String difficulty;
+
+    private Corpus corpus;
+    private Random random;
+    private int next;
+
+    @Setup
+    public void setup() {
+        corpus = Corpus.load(difficulty);
+        random = new Random(SEED);
+        next = 0;
+    }
+
+    @Benchmark
+    public int countSolutions() {
+        return SudokuGenerator.countSolutions(corpus.puzzle(next++), 2);
+    }
+
+    @Benchmark
+    public int[][] generatePuzzle() {
+        return SudokuGenerator.generatePuzzle(corpus.solution(next++), difficulty, random);
+    }
+
+    @Benchmark
+    public int[][] solvePuzzle() {
+        return SudokuGenerator.solvePuzzle(corpus.puzzle(next++));
+    }
+}
@@ -0,0 +1,48 @@
+package com.rarid.sudoku.generator;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Every registered engine over the whole corpus, see Solvers
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SolverBenchmark {
+    @Param({ Solvers.BACKTRACK, Solvers.DLX, Solvers.MRV, Solvers.PROPAGATE })
+    public String solver;
+
+    private Solver engine;
+    private Corpus corpus;
+    private int next;
+
+    @Setup
+    public void setup() {
+        engine = Solvers.get(solver);
+        corpus = Corpus.load(null);
+        next = 0;
+    }
+
+    @Benchmark
+    public boolean isUnique() {
+        return engine.isUnique(corpus.puzzle(next++));
+    }
+
+    @Benchmark
+    public int[][] solve() {
+        return engine.solve(corpus.puzzle(next++));
+    }
+}